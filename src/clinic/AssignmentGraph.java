@@ -0,0 +1,112 @@
+package clinic;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps track of which clinical staff are assigned to which patients.
+ * Both directions are stored as adjacency sets, so looking up the
+ * patients of a staff member or the staff of a patient only touches
+ * that person's own assignments.
+ */
+public class AssignmentGraph {
+  private final Map<ClinicalStaff, Set<Patient>> patientsByStaff = new HashMap<>();
+  private final Map<Patient, Set<ClinicalStaff>> staffByPatient = new HashMap<>();
+
+  /**
+   * Assigns a staff member to a patient.
+   * @param staff Staff member.
+   * @param patient Patient.
+   * @return True if the assignment is new.
+   */
+  public boolean assign(ClinicalStaff staff, Patient patient) {
+    if (!patientsByStaff.computeIfAbsent(staff, k -> new LinkedHashSet<>()).add(patient)) {
+      return false;
+    }
+    staffByPatient.computeIfAbsent(patient, k -> new LinkedHashSet<>()).add(staff);
+    return true;
+  }
+
+  /**
+   * Removes a single assignment.
+   * @param staff Staff member.
+   * @param patient Patient.
+   * @return True if the assignment existed.
+   */
+  public boolean unassign(ClinicalStaff staff, Patient patient) {
+    Set<Patient> patients = patientsByStaff.get(staff);
+    if (patients == null || !patients.remove(patient)) {
+      return false;
+    }
+    if (patients.isEmpty()) {
+      patientsByStaff.remove(staff);
+    }
+    Set<ClinicalStaff> staffOfPatient = staffByPatient.get(patient);
+    staffOfPatient.remove(staff);
+    if (staffOfPatient.isEmpty()) {
+      staffByPatient.remove(patient);
+    }
+    return true;
+  }
+
+  /**
+   * Removes a staff member from every patient they are assigned to.
+   * @param staff Staff member.
+   * @return Patients the staff member was assigned to.
+   */
+  public Set<Patient> unassignAll(ClinicalStaff staff) {
+    Set<Patient> patients = patientsByStaff.remove(staff);
+    if (patients == null) {
+      return Collections.emptySet();
+    }
+    for (Patient patient : patients) {
+      Set<ClinicalStaff> staffOfPatient = staffByPatient.get(patient);
+      staffOfPatient.remove(staff);
+      if (staffOfPatient.isEmpty()) {
+        staffByPatient.remove(patient);
+      }
+    }
+    return patients;
+  }
+
+  /**
+   * Gets the patients a staff member is assigned to.
+   * @param staff Staff member.
+   * @return Read only view of the patients.
+   */
+  public Set<Patient> patientsOf(ClinicalStaff staff) {
+    Set<Patient> patients = patientsByStaff.get(staff);
+    return patients == null ? Collections.emptySet() : Collections.unmodifiableSet(patients);
+  }
+
+  /**
+   * Gets the staff assigned to a patient.
+   * @param patient Patient.
+   * @return Read only view of the staff.
+   */
+  public Set<ClinicalStaff> staffOf(Patient patient) {
+    Set<ClinicalStaff> staff = staffByPatient.get(patient);
+    return staff == null ? Collections.emptySet() : Collections.unmodifiableSet(staff);
+  }
+
+  /**
+   * Counts the patients a staff member is assigned to.
+   * @param staff Staff member.
+   * @return Number of patients.
+   */
+  public int patientCount(Staff staff) {
+    Set<Patient> patients = patientsByStaff.get(staff);
+    return patients == null ? 0 : patients.size();
+  }
+
+  /**
+   * Removes every assignment.
+   */
+  public void clear() {
+    patientsByStaff.clear();
+    staffByPatient.clear();
+  }
+}
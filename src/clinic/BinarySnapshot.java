@@ -0,0 +1,354 @@
+package clinic;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Saves the full state of a clinic model to a compact binary file and
+ * restores it again. The file holds rooms, staff, patients with their
+ * visits, staff assignments, approvers and room occupants. Each distinct
+ * complaint is stored once, entities refer to each other by position.
+ * Restoring maps the file into memory and reads it without any text
+ * parsing or name lookups.
+ */
+public final class BinarySnapshot {
+  private static final int MAGIC = 0x434C534E; // "CLSN"
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 16;
+
+  private static final byte CLINICAL_STAFF = 1;
+  private static final byte NON_CLINICAL_STAFF = 2;
+
+  private BinarySnapshot() {
+  }
+
+  /**
+   * Writes the model to a snapshot file. The file is written next to the
+   * target first, forced to disk and moved in place once complete, and
+   * the move is forced to disk too. When this returns the snapshot is
+   * durable, and a crash before then leaves the old snapshot in place.
+   * @param model Model to save, it should not change while being saved.
+   * @param path Snapshot file.
+   * @param generation Generation recorded in the file, used to match a write-ahead log.
+   * @throws IOException If the file cannot be written.
+   */
+  public static void write(InterfaceClinicModel model, Path path, long generation)
+      throws IOException {
+    Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+    CRC32 crc = new CRC32();
+    try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+      OutputStream file = Channels.newOutputStream(channel);
+      CheckedOutputStream checked = new CheckedOutputStream(
+          new BufferedOutputStream(file, 1 << 16), crc);
+      DataOutputStream out = new DataOutputStream(checked);
+      out.writeInt(MAGIC);
+      out.writeInt(FORMAT_VERSION);
+      out.writeLong(generation);
+      writeModel(model, out);
+      out.flush();
+      new DataOutputStream(file).writeInt((int) crc.getValue());
+      channel.force(true); // The contents must be on disk before the rename is.
+    }
+    try {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+    forceDirectory(path.toAbsolutePath().getParent());
+  }
+
+  // Forces a rename in the directory to disk, where the platform allows opening directories.
+  private static void forceDirectory(Path directory) throws IOException {
+    FileChannel channel;
+    try {
+      channel = FileChannel.open(directory, StandardOpenOption.READ);
+    } catch (IOException e) {
+      return; // Some platforms, such as Windows, cannot open a directory to force it.
+    }
+    try (FileChannel dir = channel) {
+      dir.force(true);
+    }
+  }
+
+  /**
+   * Restores a snapshot file into a model. The model should be empty.
+   * @param path Snapshot file.
+   * @param model Model to restore into.
+   * @return Generation recorded in the file.
+   * @throws IOException If the file cannot be read or is damaged.
+   */
+  public static long read(Path path, InterfaceClinicModel model) throws IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < HEADER_SIZE + Integer.BYTES) {
+        throw new IOException("Not a clinic snapshot: " + path);
+      }
+      if (size > Integer.MAX_VALUE) {
+        throw new IOException("Snapshot is too large to map: " + path);
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      int bodyEnd = (int) size - Integer.BYTES;
+      CRC32 crc = new CRC32();
+      ByteBuffer body = buffer.duplicate();
+      body.limit(bodyEnd);
+      crc.update(body);
+      if (buffer.getInt(bodyEnd) != (int) crc.getValue()) {
+        throw new IOException("Snapshot is damaged, checksum mismatch: " + path);
+      }
+      if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+        throw new IOException("Not a clinic snapshot: " + path);
+      }
+      long generation = buffer.getLong();
+      buffer.limit(bodyEnd);
+      model.beginBulkLoad();
+      try {
+        readModel(buffer, model);
+      } catch (RuntimeException e) {
+        throw new IOException("Snapshot is malformed: " + e.getMessage(), e);
+      } finally {
+        model.commitBulkLoad();
+      }
+      return generation;
+    }
+  }
+
+  private static void writeModel(InterfaceClinicModel model, DataOutputStream out)
+      throws IOException {
+    List<Room> rooms = model.getAllRooms();
+    Map<Room, Integer> roomIndexes = indexOf(rooms);
+    out.writeInt(rooms.size());
+    for (Room room : rooms) {
+      out.writeInt(room.getX1());
+      out.writeInt(room.getY1());
+      out.writeInt(room.getX2());
+      out.writeInt(room.getY2());
+      writeString(out, room.getRoomType());
+      writeString(out, room.getRoomName());
+    }
+
+    List<Staff> staff = model.getAllStaff();
+    Map<Staff, Integer> staffIndexes = indexOf(staff);
+    out.writeInt(staff.size());
+    for (Staff member : staff) {
+      writeStaff(out, member);
+      out.writeBoolean(member.isActive());
+    }
+
+    List<Patient> patients = model.getAllPatients();
+    Map<String, Integer> complaints = new LinkedHashMap<>();
+    for (Patient patient : patients) {
+      for (InterfaceVisitRecord visit : patient.getVisitRecords()) {
+        if (visit.getChiefComplaint() != null) {
+          complaints.putIfAbsent(visit.getChiefComplaint(), complaints.size());
+        }
+      }
+    }
+    out.writeInt(complaints.size());
+    for (String complaint : complaints.keySet()) {
+      writeString(out, complaint);
+    }
+
+    out.writeInt(patients.size());
+    for (Patient patient : patients) {
+      writeString(out, patient.getFirstName());
+      writeString(out, patient.getLastName());
+      writeString(out, patient.getDob());
+      out.writeBoolean(patient.isActive());
+      out.writeInt(roomIndexes.getOrDefault(patient.getAssignedRoom(), -1));
+      out.writeInt(staffIndexes.getOrDefault(patient.getDeactivationApprover(), -1));
+      List<Integer> assigned = new ArrayList<>();
+      for (ClinicalStaff member : model.getClinicalStaffAssignedToPatient(patient)) {
+        Integer index = staffIndexes.get(member);
+        if (index != null) {
+          assigned.add(index);
+        }
+      }
+      out.writeInt(assigned.size());
+      for (int index : assigned) {
+        out.writeInt(index);
+      }
+      List<InterfaceVisitRecord> visits = patient.getVisitRecords();
+      out.writeInt(visits.size());
+      for (InterfaceVisitRecord visit : visits) {
+        LocalDateTime time = visit.getVisitTime();
+        out.writeBoolean(time != null);
+        if (time != null) {
+          out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+          out.writeInt(time.getNano());
+        }
+        out.writeInt(complaints.getOrDefault(visit.getChiefComplaint(), -1));
+        out.writeDouble(visit.getBodyTemperature());
+      }
+    }
+
+    // Room occupants are the model's own copies of the patients.
+    for (Room room : rooms) {
+      out.writeInt(room.getAssignedPatients().size());
+      for (Patient occupant : room.getAssignedPatients()) {
+        writeString(out, occupant.getFirstName());
+        writeString(out, occupant.getLastName());
+        writeString(out, occupant.getDob());
+      }
+    }
+  }
+
+  private static void readModel(ByteBuffer in, InterfaceClinicModel model) {
+    int roomCount = in.getInt();
+    List<Room> rooms = new ArrayList<>(roomCount);
+    for (int i = 0; i < roomCount; i++) {
+      int x1 = in.getInt();
+      int y1 = in.getInt();
+      int x2 = in.getInt();
+      int y2 = in.getInt();
+      String roomType = readString(in);
+      Room room = new Room(x1, y1, x2, y2, roomType, readString(in));
+      rooms.add(room);
+      model.addRoom(room);
+    }
+
+    int staffCount = in.getInt();
+    List<Staff> staff = new ArrayList<>(staffCount);
+    for (int i = 0; i < staffCount; i++) {
+      Staff member = readStaff(in);
+      staff.add(member);
+      model.addStaff(member);
+      if (in.get() == 0) {
+        model.deactivateStaff(member);
+      }
+    }
+
+    int complaintCount = in.getInt();
+    String[] complaints = new String[complaintCount];
+    for (int i = 0; i < complaintCount; i++) {
+      complaints[i] = readString(in);
+    }
+
+    int patientCount = in.getInt();
+    for (int i = 0; i < patientCount; i++) {
+      String firstName = readString(in);
+      String lastName = readString(in);
+      Patient patient = new Patient(firstName, lastName, readString(in));
+      model.addPatient(patient);
+      boolean active = in.get() != 0;
+      int roomIndex = in.getInt();
+      int approverIndex = in.getInt();
+      if (roomIndex >= 0) {
+        patient.assignRoom(rooms.get(roomIndex));
+      }
+      ClinicalStaff approver = approverIndex >= 0
+          ? (ClinicalStaff) staff.get(approverIndex) : null;
+      if (!active || approver != null) {
+        model.deactivatePatient(patient, approver);
+        if (active) {
+          model.activatePatient(patient);
+        }
+      }
+      int assignedCount = in.getInt();
+      for (int j = 0; j < assignedCount; j++) {
+        model.assignClinicalStaffToPatient((ClinicalStaff) staff.get(in.getInt()), patient);
+      }
+      int visitCount = in.getInt();
+      for (int j = 0; j < visitCount; j++) {
+        LocalDateTime time = in.get() != 0
+            ? LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC) : null;
+        int complaint = in.getInt();
+        model.addVisitRecord(patient, time, complaint >= 0 ? complaints[complaint] : null,
+            in.getDouble());
+      }
+    }
+
+    for (Room room : rooms) {
+      int occupantCount = in.getInt();
+      for (int i = 0; i < occupantCount; i++) {
+        String firstName = readString(in);
+        String lastName = readString(in);
+        model.assignPatientToRoom(new Patient(firstName, lastName, readString(in)), room);
+      }
+    }
+  }
+
+  private static <T> Map<T, Integer> indexOf(List<T> entities) {
+    Map<T, Integer> indexes = new IdentityHashMap<>();
+    for (T entity : entities) {
+      indexes.putIfAbsent(entity, indexes.size());
+    }
+    return indexes;
+  }
+
+  private static void writeStaff(DataOutputStream out, Staff member) throws IOException {
+    String detail;
+    String role;
+    if (member instanceof ClinicalStaff) {
+      out.writeByte(CLINICAL_STAFF);
+      detail = ((ClinicalStaff) member).getNpi();
+      role = ((ClinicalStaff) member).getRole();
+    } else if (member instanceof NonClinicalStaff) {
+      out.writeByte(NON_CLINICAL_STAFF);
+      detail = ((NonClinicalStaff) member).getCprLevel();
+      role = ((NonClinicalStaff) member).getRole();
+    } else {
+      throw new IllegalArgumentException("Unsupported staff type: " + member.getClass());
+    }
+    writeString(out, member.getFirstName());
+    writeString(out, member.getLastName());
+    writeString(out, member.getEducationLevel());
+    writeString(out, detail);
+    writeString(out, role);
+  }
+
+  private static Staff readStaff(ByteBuffer in) {
+    byte type = in.get();
+    String firstName = readString(in);
+    String lastName = readString(in);
+    String educationLevel = readString(in);
+    String detail = readString(in);
+    String role = readString(in);
+    return type == CLINICAL_STAFF
+        ? new ClinicalStaff(firstName, lastName, educationLevel, detail, role)
+        : new NonClinicalStaff(firstName, lastName, educationLevel, detail, role);
+  }
+
+  // Strings are a byte count, -1 for null, followed by UTF-8 bytes.
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(-1);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  private static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,266 @@
+package clinic;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Applies changes to a clinic model one at a time on a single writer thread.
+ * Callers enqueue commands and get a future back, commands are applied in
+ * the order they were submitted. Commands that arrive in a burst are drained
+ * together and applied as one bulk load, so the model renders once per batch.
+ * Readers on other threads should use a thread safe model such as
+ * {@link ConcurrentClinicModel}, or read from its snapshots.
+ */
+public class ClinicCommandQueue {
+  /**
+   * Default number of commands that can wait in the queue.
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+  /**
+   * Default largest number of commands applied in one batch.
+   */
+  public static final int DEFAULT_MAX_BATCH = 64;
+
+  private final InterfaceClinicModel model;
+  private final BlockingQueue<Command<?>> queue;
+  private final int maxBatch;
+  private final Thread writer;
+  private volatile CommandListener listener;
+  private volatile boolean running = true;
+  // Set by the writer as it stops, anything queued after that is failed instead.
+  private volatile boolean closed;
+  private long sequence;
+
+  /**
+   * Listener told about every applied command, for logging or auditing.
+   * Called on the writer thread, so it should return quickly.
+   */
+  public interface CommandListener {
+    /**
+     * Called after a command was applied.
+     * @param sequence Position of the command, starting at 1.
+     * @param description Description given when the command was submitted.
+     * @param error Exception thrown by the command, or null if it succeeded.
+     */
+    void commandApplied(long sequence, String description, Throwable error);
+  }
+
+  /**
+   * Creates a queue with the default capacity and batch size.
+   * @param model Model the commands are applied to.
+   */
+  public ClinicCommandQueue(InterfaceClinicModel model) {
+    this(model, DEFAULT_CAPACITY, DEFAULT_MAX_BATCH);
+  }
+
+  /**
+   * Creates a queue and starts its writer thread.
+   * @param model Model the commands are applied to.
+   * @param capacity Number of commands that can wait, submitting blocks when full.
+   * @param maxBatch Largest number of commands applied in one batch.
+   */
+  public ClinicCommandQueue(InterfaceClinicModel model, int capacity, int maxBatch) {
+    if (model == null) {
+      throw new IllegalArgumentException("The model cannot be null.");
+    }
+    if (capacity <= 0 || maxBatch <= 0) {
+      throw new IllegalArgumentException("The capacity and batch size must be positive.");
+    }
+    this.model = model;
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.maxBatch = maxBatch;
+    this.writer = new Thread(this::drainLoop, "clinic-commands");
+    this.writer.setDaemon(true);
+    this.writer.start();
+  }
+
+  /**
+   * Sets the listener told about applied commands.
+   * @param listener Listener, or null to remove it.
+   */
+  public void setListener(CommandListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * Enqueues a command that produces a result.
+   * @param <T> Result type.
+   * @param description Short description used for logging.
+   * @param action Work to run against the model.
+   * @return Future completed with the result once the command was applied,
+   *     or failed if the queue stopped before applying it.
+   */
+  public <T> CompletableFuture<T> submit(String description,
+      Function<InterfaceClinicModel, T> action) {
+    if (action == null) {
+      throw new IllegalArgumentException("The command cannot be null.");
+    }
+    if (!running) {
+      throw new IllegalStateException("The command queue has been shut down.");
+    }
+    Command<T> command = new Command<>(description, action);
+    try {
+      // Waits for room a little at a time, a stopped writer never makes any.
+      while (!queue.offer(command, 100, TimeUnit.MILLISECONDS)) {
+        if (closed) {
+          throw new IllegalStateException("The command queue has been shut down.");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while submitting " + description, e);
+    }
+    if (closed) {
+      failLeftovers(); // The writer stopped while this was being queued.
+    }
+    return command.future;
+  }
+
+  /**
+   * Enqueues a command without a result.
+   * @param description Short description used for logging.
+   * @param action Work to run against the model.
+   * @return Future completed once the command was applied.
+   */
+  public CompletableFuture<Void> execute(String description,
+      Consumer<InterfaceClinicModel> action) {
+    if (action == null) {
+      throw new IllegalArgumentException("The command cannot be null.");
+    }
+    return submit(description, m -> {
+      action.accept(m);
+      return null;
+    });
+  }
+
+  /**
+   * Number of commands waiting to be applied.
+   * @return Pending command count.
+   */
+  public int pendingCount() {
+    return queue.size();
+  }
+
+  /**
+   * Stops accepting commands, applies the ones already queued and stops
+   * the writer thread. Commands still queued when the writer stops, even
+   * after the timeout, are failed.
+   * @param timeoutMillis Longest time to wait for the queue to drain.
+   * @return True if every queued command was applied in time.
+   */
+  public boolean shutdown(long timeoutMillis) {
+    running = false; // The writer notices within one poll interval.
+    try {
+      writer.join(timeoutMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return !writer.isAlive();
+  }
+
+  private void failLeftovers() {
+    Command<?> leftover;
+    while ((leftover = queue.poll()) != null) {
+      leftover.future.completeExceptionally(
+          new IllegalStateException("The command queue has been shut down."));
+    }
+  }
+
+  private void drainLoop() {
+    try {
+      List<Command<?>> batch = new ArrayList<>(maxBatch);
+      while (running || !queue.isEmpty()) {
+        try {
+          Command<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+          if (first == null) {
+            continue;
+          }
+          batch.add(first);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+        queue.drainTo(batch, maxBatch - 1);
+        try {
+          applyBatch(batch);
+        } catch (Error e) {
+          running = false; // The model may be left broken, take no more commands.
+          throw e;
+        }
+        batch.clear();
+      }
+    } finally {
+      // Closed before failing, so a submit that queues after this sees it and fails its own.
+      running = false;
+      closed = true;
+      failLeftovers();
+    }
+  }
+
+  // Applies a batch as one bulk load, a failed command does not stop the others.
+  // Futures complete after the commit, once the whole batch is visible. An Error
+  // thrown by a command is rethrown after that, which stops the writer thread.
+  private void applyBatch(List<Command<?>> batch) {
+    model.beginBulkLoad();
+    try {
+      for (Command<?> command : batch) {
+        command.apply(model);
+      }
+    } finally {
+      model.commitBulkLoad();
+    }
+    CommandListener current = listener;
+    Error fatal = null;
+    for (Command<?> command : batch) {
+      sequence++;
+      if (current != null) {
+        current.commandApplied(sequence, command.description, command.error);
+      }
+      command.finish();
+      if (fatal == null && command.error instanceof Error) {
+        fatal = (Error) command.error;
+      }
+    }
+    if (fatal != null) {
+      throw fatal;
+    }
+  }
+
+  /**
+   * A queued unit of work and the future waiting on it.
+   */
+  private static final class Command<T> {
+    private final String description;
+    private final Function<InterfaceClinicModel, T> action;
+    private final CompletableFuture<T> future = new CompletableFuture<>();
+    private T result;
+    private Throwable error;
+
+    private Command(String description, Function<InterfaceClinicModel, T> action) {
+      this.description = description;
+      this.action = action;
+    }
+
+    private void apply(InterfaceClinicModel model) {
+      try {
+        result = action.apply(model);
+      } catch (Throwable e) {
+        error = e;
+      }
+    }
+
+    private void finish() {
+      if (error != null) {
+        future.completeExceptionally(error);
+      } else {
+        future.complete(result);
+      }
+    }
+  }
+}
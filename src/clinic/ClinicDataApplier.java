@@ -0,0 +1,134 @@
+package clinic;
+
+import java.time.LocalDateTime;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Applies the directives of a clinic data file to a model. Lines that
+ * refer to a patient, room or staff member that does not exist are
+ * ignored. An applier made for out of order lines also ignores entities
+ * defined on a later line than the directive that refers to them, so the
+ * result is the same as applying the file in order.
+ */
+public class ClinicDataApplier implements ClinicDataHandler {
+  private final InterfaceClinicModel model;
+  private final Map<Object, Long> definedAt;
+  private Patient lastPatient;
+  private long line;
+
+  /**
+   * Creates an applier for the given model that receives lines in order.
+   * @param model Model the directives are applied to.
+   */
+  public ClinicDataApplier(InterfaceClinicModel model) {
+    this(model, false);
+  }
+
+  /**
+   * Creates an applier for the given model.
+   * @param model Model the directives are applied to.
+   * @param outOfOrder Whether lines may arrive out of order, reported through {@link #line}.
+   */
+  public ClinicDataApplier(InterfaceClinicModel model, boolean outOfOrder) {
+    if (model == null) {
+      throw new IllegalArgumentException("The model cannot be null.");
+    }
+    this.model = model;
+    this.definedAt = outOfOrder ? new IdentityHashMap<>() : null;
+  }
+
+  @Override
+  public void line(long lineNumber) {
+    line = lineNumber;
+  }
+
+  @Override
+  public void room(String roomName, String roomType, int x1, int y1, int x2, int y2) {
+    model.addRoom(defined(new Room(x1, y1, x2, y2, roomType, roomName)));
+  }
+
+  @Override
+  public void staff(String firstName, String lastName, String role, String educationLevel,
+      String npi) {
+    if ("Doctor".equalsIgnoreCase(role) || "Physician".equalsIgnoreCase(role)) {
+      model.addStaff(defined(new ClinicalStaff(firstName, lastName, educationLevel, npi, role)));
+    } else {
+      model.addStaff(defined(new NonClinicalStaff(firstName, lastName, educationLevel, "Basic",
+          role)));
+    }
+  }
+
+  @Override
+  public void patient(String firstName, String lastName, String dob) {
+    lastPatient = defined(new Patient(firstName, lastName, dob));
+    model.addPatient(lastPatient);
+  }
+
+  @Override
+  public void visit(LocalDateTime visitTime, String chiefComplaint, double temperature) {
+    if (lastPatient == null) {
+      throw new IllegalStateException("A visit has to follow a patient.");
+    }
+    model.addVisitRecord(lastPatient, visitTime, chiefComplaint, temperature);
+  }
+
+  @Override
+  public void assign(String firstName, String lastName, String roomName) {
+    Patient patient = visible(model.findPatientByName(firstName, lastName));
+    Room room = visible(model.findRoomByName(roomName));
+    if (patient != null && room != null) {
+      model.assignPatientToRoom(patient, room);
+    }
+  }
+
+  @Override
+  public void assignStaff(String patientFirstName, String patientLastName,
+      String staffFirstName, String staffLastName) {
+    Patient patient = visible(model.findPatientByName(patientFirstName, patientLastName));
+    Staff staff = visible(model.findStaffByName(staffFirstName, staffLastName));
+    if (patient != null && staff instanceof ClinicalStaff) {
+      model.assignClinicalStaffToPatient((ClinicalStaff) staff, patient);
+    }
+  }
+
+  @Override
+  public void deactivateStaff(String firstName, String lastName) {
+    Staff staff = visible(model.findStaffByName(firstName, lastName));
+    if (staff != null) {
+      model.deactivateStaff(staff);
+    }
+  }
+
+  @Override
+  public void sendHome(String patientFirstName, String patientLastName,
+      String staffFirstName, String staffLastName) {
+    Patient patient = visible(model.findPatientByName(patientFirstName, patientLastName));
+    ClinicalStaff approver = (ClinicalStaff) visible(model.findStaffByName(staffFirstName,
+        staffLastName));
+    if (patient != null && approver != null) {
+      model.deactivatePatient(patient, approver);
+    }
+  }
+
+  @Override
+  public void unknown(String directive) {
+    System.err.println("Unknown directive: " + directive);
+  }
+
+  private <T> T defined(T entity) {
+    if (definedAt != null) {
+      definedAt.put(entity, line);
+    }
+    return entity;
+  }
+
+  // The first entity with a name is the one a lookup finds, so if it comes later nothing does.
+  private <T> T visible(T entity) {
+    if (definedAt == null || entity == null) {
+      return entity;
+    }
+    Long definedLine = definedAt.get(entity);
+    return definedLine != null && definedLine > line ? null : entity;
+  }
+}
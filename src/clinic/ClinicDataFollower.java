@@ -0,0 +1,326 @@
+package clinic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Follows a clinic data feed and applies lines to a model as they are
+ * appended. The feed is either one file or a directory of rotating files,
+ * read one after the other in name order. The follower checks for new
+ * lines every poll interval and applies all complete lines it finds, so a
+ * line is applied at most one interval plus one batch after it is written.
+ *
+ * <p>Where it is in the feed is saved to an offset file after every batch.
+ * A new follower with the same offset file carries on from there, so
+ * nothing is applied twice unless the program stops between applying a
+ * batch and saving its offset. A file that shrinks is read again from the
+ * start. Rejected rows are reported on standard error and skipped.
+ */
+public class ClinicDataFollower {
+  /**
+   * Default time between checks for new lines.
+   */
+  public static final long DEFAULT_POLL_MILLIS = 250;
+  /**
+   * Default largest number of bytes applied in one batch.
+   */
+  public static final int DEFAULT_MAX_BATCH_BYTES = 1 << 18;
+
+  private final InterfaceClinicModel model;
+  private final Path source;
+  private final Path offsetFile;
+  private final Executor executor;
+  private final long pollMillis;
+  private final Thread reader;
+  private volatile boolean running = true;
+  // When stop gives up waiting, System.nanoTime based.
+  private volatile long stopDeadline;
+  private volatile String currentFile;
+  private volatile long offset;
+  private volatile long lineNumber;
+
+  /**
+   * Creates a follower and starts its reader thread.
+   * @param model Model the lines are applied to.
+   * @param source File or directory to follow.
+   * @param offsetFile File the position in the feed is kept in.
+   * @param executor Runs each batch against the model, on whatever thread may change it.
+   * @param pollMillis Time between checks for new lines.
+   * @throws IOException If the offset file exists but cannot be read.
+   */
+  public ClinicDataFollower(InterfaceClinicModel model, Path source, Path offsetFile,
+      Executor executor, long pollMillis) throws IOException {
+    if (model == null || source == null || offsetFile == null || executor == null) {
+      throw new IllegalArgumentException("The model, paths and executor cannot be null.");
+    }
+    if (pollMillis <= 0) {
+      throw new IllegalArgumentException("The poll interval must be positive.");
+    }
+    this.model = model;
+    this.source = source;
+    this.offsetFile = offsetFile;
+    this.executor = executor;
+    this.pollMillis = pollMillis;
+    loadOffset();
+    this.reader = new Thread(this::followLoop, "clinic-follow");
+    this.reader.setDaemon(true);
+    this.reader.start();
+  }
+
+  /**
+   * Gets the file being followed.
+   * @return Current file, or null if the directory has no files yet.
+   */
+  public Path getCurrentFile() {
+    String name = currentFile;
+    return name == null ? null : Files.isDirectory(source) ? source.resolve(name) : source;
+  }
+
+  /**
+   * Gets the offset in the current file up to which lines were applied.
+   * @return Offset in bytes.
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * Gets the number of lines of the current file applied so far.
+   * @return Line count.
+   */
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * Stops following. A batch being applied is finished first and its
+   * offset saved, if that happens within the timeout.
+   * @param timeoutMillis Longest time to wait for the reader thread.
+   * @return True if the reader thread stopped in time.
+   */
+  public boolean stop(long timeoutMillis) {
+    stopDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    running = false;
+    reader.interrupt();
+    try {
+      reader.join(timeoutMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return !reader.isAlive();
+  }
+
+  private void followLoop() {
+    while (running) {
+      boolean progressed = false;
+      try {
+        progressed = poll();
+      } catch (IOException e) {
+        System.err.println("Error following " + source + ": " + e.getMessage());
+      } catch (InterruptedException e) {
+        return;
+      }
+      if (!progressed) {
+        try {
+          Thread.sleep(pollMillis);
+        } catch (InterruptedException e) {
+          return;
+        }
+      }
+    }
+  }
+
+  // Applies the next batch of complete lines, or moves on to the next file.
+  private boolean poll() throws IOException, InterruptedException {
+    boolean directory = Files.isDirectory(source);
+    if (currentFile == null) {
+      List<Path> files = directory ? feedFiles() : Arrays.asList(source);
+      if (files.isEmpty()) {
+        return false;
+      }
+      currentFile = files.get(0).getFileName().toString();
+    }
+    Path file = getCurrentFile();
+    // Look for the next file before reading the size, so the size read is final once it exists.
+    Path next = directory ? nextFile() : null;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < offset) {
+        System.err.println(file + " shrank, following it from the start.");
+        offset = 0;
+        lineNumber = 0;
+      }
+      long limit = Math.min(size, offset + DEFAULT_MAX_BATCH_BYTES);
+      long to = afterLastLineBreak(channel, offset, limit);
+      if (to == offset && limit < size) {
+        to = afterLastLineBreak(channel, offset, size); // A line longer than one batch.
+      }
+      if (to > offset) {
+        apply(file, channel, to);
+        return true;
+      }
+      if (next != null && size > offset) {
+        apply(file, channel, size); // Rotated, so the last line will not be finished.
+        return true;
+      }
+    } catch (NoSuchFileException e) {
+      // Rotated away, carry on with the next file if there is one.
+    }
+    if (next == null) {
+      return false;
+    }
+    currentFile = next.getFileName().toString();
+    offset = 0;
+    lineNumber = 0;
+    saveOffset();
+    return true;
+  }
+
+  private void apply(Path file, FileChannel channel, long to)
+      throws IOException, InterruptedException {
+    long from = offset;
+    LoadReporter reporter = new LoadReporter(new ClinicDataApplier(model), lineNumber);
+    CompletableFuture<Long> applied = new CompletableFuture<>();
+    executor.execute(() -> {
+      if (!running) {
+        applied.cancel(false);
+        return;
+      }
+      model.beginBulkLoad();
+      try {
+        applied.complete(new MappedClinicDataParser().parse(channel, from, to, reporter));
+      } catch (IOException | RuntimeException e) {
+        applied.completeExceptionally(e);
+      } finally {
+        model.commitBulkLoad();
+      }
+    });
+    long lines;
+    boolean interrupted = false;
+    try {
+      lines = applied.get();
+    } catch (InterruptedException e) {
+      Long finished = finishing(applied);
+      if (finished == null) {
+        throw e; // Not applied in time, the next follower applies it again.
+      }
+      lines = finished;
+      interrupted = true;
+    } catch (ExecutionException e) {
+      throw new IOException("Could not apply " + file + ": " + e.getCause().getMessage(),
+          e.getCause());
+    } catch (CancellationException e) {
+      return; // Stopped before the batch ran, so it is applied by the next follower.
+    }
+    for (LoadReport.Diagnostic diagnostic : reporter.finish(lines, 0, null).getDiagnostics()) {
+      System.err.println("Rejected " + file.getFileName() + " " + diagnostic);
+    }
+    offset = to;
+    lineNumber += lines;
+    saveOffset();
+    if (interrupted) {
+      Thread.currentThread().interrupt(); // Only now, file channels close when interrupted.
+    }
+  }
+
+  // Waits for a batch already handed over when stop was called, as long as stop waits.
+  private Long finishing(CompletableFuture<Long> applied) {
+    try {
+      return applied.get(Math.max(0, stopDeadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException | ExecutionException | CancellationException
+        | TimeoutException e) {
+      return null;
+    }
+  }
+
+  // Offset just past the last line break in the range, or the start if there is none.
+  private static long afterLastLineBreak(FileChannel channel, long from, long to)
+      throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate(4096);
+    long end = to;
+    while (end > from) {
+      long start = Math.max(from, end - bytes.capacity());
+      bytes.clear();
+      bytes.limit((int) (end - start));
+      while (bytes.hasRemaining() && channel.read(bytes, start + bytes.position()) > 0) {
+        // Keep reading until the block is in.
+      }
+      for (int i = bytes.position() - 1; i >= 0; i--) {
+        if (bytes.get(i) == '\n') {
+          return start + i + 1;
+        }
+      }
+      end = start;
+    }
+    return from;
+  }
+
+  private Path nextFile() throws IOException {
+    for (Path file : feedFiles()) {
+      if (file.getFileName().toString().compareTo(currentFile) > 0) {
+        return file;
+      }
+    }
+    return null;
+  }
+
+  // Files of the directory in name order, leaving out the offset file.
+  private List<Path> feedFiles() throws IOException {
+    Path own = offsetFile.toAbsolutePath().normalize();
+    Path ownTemp = own.resolveSibling(own.getFileName() + ".tmp");
+    try (Stream<Path> files = Files.list(source)) {
+      return files.filter(Files::isRegularFile)
+          .filter(p -> {
+            Path absolute = p.toAbsolutePath().normalize();
+            return !absolute.equals(own) && !absolute.equals(ownTemp);
+          })
+          .sorted((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()))
+          .collect(Collectors.toList());
+    }
+  }
+
+  private void loadOffset() throws IOException {
+    if (!Files.exists(offsetFile)) {
+      return;
+    }
+    List<String> lines = Files.readAllLines(offsetFile, StandardCharsets.UTF_8);
+    try {
+      currentFile = lines.get(0);
+      offset = Long.parseLong(lines.get(1));
+      lineNumber = Long.parseLong(lines.get(2));
+    } catch (IndexOutOfBoundsException | NumberFormatException e) {
+      throw new IOException("Malformed offset file " + offsetFile, e);
+    }
+  }
+
+  // Written next to the offset file and moved in place, so a crash leaves the old or the new one.
+  private void saveOffset() throws IOException {
+    Path temp = offsetFile.resolveSibling(offsetFile.getFileName() + ".tmp");
+    Files.write(temp, Arrays.asList(currentFile, Long.toString(offset),
+        Long.toString(lineNumber)), StandardCharsets.UTF_8);
+    try {
+      Files.move(temp, offsetFile, StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, offsetFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package clinic;
+
+import java.time.LocalDateTime;
+
+/**
+ * Receives the directives of a clinic data file, one call per line, in
+ * file order unless the parser documents otherwise. Parsers split the
+ * lines into fields, handlers decide what each directive does.
+ */
+public interface ClinicDataHandler {
+  /**
+   * Called before the directives of a line by parsers that hand lines
+   * over out of file order, so the handler knows where each one came from.
+   * @param lineNumber Number of the line in the file, starting at 1.
+   */
+  default void line(long lineNumber) {
+  }
+
+  /**
+   * Called instead of the directives of a line that could not be parsed, or
+   * that made one of the other methods throw. By default the error is
+   * rethrown, which stops the parse.
+   * @param lineNumber Number of the line in the file, starting at 1.
+   * @param line Text of the line, without the line break.
+   * @param error What went wrong.
+   */
+  default void reject(long lineNumber, String line, RuntimeException error) {
+    throw error;
+  }
+
+  /**
+   * Room, name, type, x1, y1, x2, y2.
+   * @param roomName Room name.
+   * @param roomType Room type.
+   * @param x1 Left edge.
+   * @param y1 Top edge.
+   * @param x2 Right edge.
+   * @param y2 Bottom edge.
+   */
+  void room(String roomName, String roomType, int x1, int y1, int x2, int y2);
+
+  /**
+   * Staff, name, role, education, npi.
+   * @param firstName First name.
+   * @param lastName Last name, empty if the name had one part.
+   * @param role Staff role.
+   * @param educationLevel Education level.
+   * @param npi NPI number, or null if not given.
+   */
+  void staff(String firstName, String lastName, String role, String educationLevel, String npi);
+
+  /**
+   * Patient, name, dob, followed by an optional visit.
+   * @param firstName First name.
+   * @param lastName Last name, empty if the name had one part.
+   * @param dob Date of birth.
+   */
+  void patient(String firstName, String lastName, String dob);
+
+  /**
+   * The optional visitTime, complaint, temperature fields of a patient line,
+   * for the patient handed over just before.
+   * @param visitTime Time of the visit.
+   * @param chiefComplaint Complaint of the visit.
+   * @param temperature Body temperature at the visit.
+   */
+  void visit(LocalDateTime visitTime, String chiefComplaint, double temperature);
+
+  /**
+   * Assign, patientName, roomName.
+   * @param firstName Patient first name.
+   * @param lastName Patient last name.
+   * @param roomName Room name.
+   */
+  void assign(String firstName, String lastName, String roomName);
+
+  /**
+   * AssignStaff, patientName, staffName.
+   * @param patientFirstName Patient first name.
+   * @param patientLastName Patient last name.
+   * @param staffFirstName Staff first name.
+   * @param staffLastName Staff last name.
+   */
+  void assignStaff(String patientFirstName, String patientLastName, String staffFirstName,
+      String staffLastName);
+
+  /**
+   * DeactivateStaff, staffName.
+   * @param firstName Staff first name.
+   * @param lastName Staff last name.
+   */
+  void deactivateStaff(String firstName, String lastName);
+
+  /**
+   * SendHome, patientName, approvingStaff.
+   * @param patientFirstName Patient first name.
+   * @param patientLastName Patient last name.
+   * @param staffFirstName Approving staff first name.
+   * @param staffLastName Approving staff last name.
+   */
+  void sendHome(String patientFirstName, String patientLastName, String staffFirstName,
+      String staffLastName);
+
+  /**
+   * A line with a directive no other method handles.
+   * @param directive First field of the line.
+   */
+  void unknown(String directive);
+}
@@ -0,0 +1,19 @@
+package clinic;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Reads a clinic data file and hands its directives to a handler. Blank
+ * lines and lines starting with # are skipped.
+ */
+public interface ClinicDataParser {
+  /**
+   * Parses a clinic data file.
+   * @param file File to parse.
+   * @param handler Handler receiving the directives in file order.
+   * @return Number of lines read, including blank and comment lines.
+   * @throws IOException If the file cannot be read.
+   */
+  long parse(Path file, ClinicDataHandler handler) throws IOException;
+}
@@ -5,6 +5,8 @@ import java.awt.event.ActionListener;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.swing.SwingUtilities;
 
@@ -14,6 +16,7 @@ import javax.swing.SwingUtilities;
 public class ClinicGraphicalController implements ClinicController, ActionListener {
   private InterfaceClinicModel model;
   private InterfaceView view;
+  private ClinicCommandQueue commandQueue;
   
   /**
    * Constructs the graphical controller.
@@ -89,6 +92,33 @@ public class ClinicGraphicalController implements ClinicController, ActionListen
     });  
   }
   
+  /**
+   * Switches the controller to command pipeline mode: changes are queued
+   * onto the given command queue and applied in order on its writer thread,
+   * the view is updated on the event thread once each change is applied.
+   * @param commandQueue Queue in front of the model, or null to call the model directly.
+   */
+  public void setCommandQueue(ClinicCommandQueue commandQueue) {
+    this.commandQueue = commandQueue;
+  }
+  
+  // Applies a change to the model, through the command queue when one is set.
+  private <T> void apply(String description, Function<InterfaceClinicModel, T> change, 
+      Consumer<T> onApplied) {
+    if (commandQueue == null) {
+      onApplied.accept(change.apply(model));
+      return;
+    }
+    commandQueue.submit(description, change).whenComplete((result, error) -> 
+        SwingUtilities.invokeLater(() -> {
+          if (error == null) {
+            onApplied.accept(result);
+          } else {
+            view.showError(description + " failed: " + error.getMessage());
+          }
+        }));
+  }
+  
   @Override
   public void setModel(InterfaceClinicModel model) {
     this.model = model;    
@@ -110,9 +140,13 @@ public class ClinicGraphicalController implements ClinicController, ActionListen
     } else {
       staff = new NonClinicalStaff(firstName, lastName, education, "Basic CPR", "Staff");
     }
-    model.addStaff(staff);
-    view.updateGraphics();
-    view.showMessage("Clinical staff registered: " + staff.getFullName());
+    apply("Register staff", m -> {
+      m.addStaff(staff);
+      return staff;
+    }, added -> {
+      view.updateGraphics();
+      view.showMessage("Clinical staff registered: " + added.getFullName());
+    });
   }
   
   @Override
@@ -127,14 +161,20 @@ public class ClinicGraphicalController implements ClinicController, ActionListen
   
   @Override
   public void deactivateStaff(String firstName, String lastName) {
-    Staff staff = model.findStaffByName(firstName, lastName);
-    if (staff != null) {
-      model.deactivateStaff(staff);
-      view.updateGraphics();
-      view.showMessage("Staff deactivated: " + staff.getFullName());  
-    } else {
-      view.showError("Staff not found.");     
-    }  
+    apply("Deactivate staff", m -> {
+      Staff staff = m.findStaffByName(firstName, lastName);
+      if (staff != null) {
+        m.deactivateStaff(staff);
+      }
+      return staff;
+    }, staff -> {
+      if (staff != null) {
+        view.updateGraphics();
+        view.showMessage("Staff deactivated: " + staff.getFullName());  
+      } else {
+        view.showError("Staff not found.");     
+      }  
+    });
   }
   
   @Override
@@ -193,34 +233,57 @@ public class ClinicGraphicalController implements ClinicController, ActionListen
   
   @Override
   public void assignRoom(Patient patient, Room room) {
-    model.assignPatientToRoom(patient, room);
-    view.updateView();
-    view.showMessage("Assigned " + patient.getFullName() 
-        + " to room " + room.getRoomName());
+    apply("Assign room", m -> {
+      m.assignPatientToRoom(patient, room);
+      return room;
+    }, assigned -> {
+      view.updateView();
+      view.showMessage("Assigned " + patient.getFullName() 
+          + " to room " + assigned.getRoomName());
+    });
   }
   
   @Override
   public void assignStaff(Patient patient, ClinicalStaff staff) {
-    model.assignClinicalStaffToPatient(staff, patient);
-    view.updateView();
-    view.showMessage("Assigned " + staff.getFullName() 
-        + " to patient " + patient.getFullName());
+    apply("Assign staff", m -> {
+      m.assignClinicalStaffToPatient(staff, patient);
+      return staff;
+    }, assigned -> {
+      view.updateView();
+      view.showMessage("Assigned " + assigned.getFullName() 
+          + " to patient " + patient.getFullName());
+    });
   }
   
   @Override
   public void unassignStaff(Patient patient, ClinicalStaff staff) {
-    model.unassignClinicalStaffFromPatient(staff, patient);
-    view.updateView();
-    view.showMessage("Unassigned " + staff.getFullName() 
-        + " from patient " + patient.getFullName());
+    apply("Unassign staff", m -> {
+      m.unassignClinicalStaffFromPatient(staff, patient);
+      return staff;
+    }, unassigned -> {
+      view.updateView();
+      view.showMessage("Unassigned " + unassigned.getFullName() 
+          + " from patient " + patient.getFullName());
+    });
   }
   
   @Override
   public void loadClinicData(String filePath) {
     try {
-      model.loadClinicData(filePath);
-      view.updateView();
-      view.showMessage("Clinic data loaded successfully.");
+      apply("Load clinic data", m -> m.loadClinicData(filePath), report -> {
+        view.updateView();
+        if (report.getFailure() != null) {
+          view.showError("Failed to load clinic data: " + report.getFailure());
+        } else if (report.isClean()) {
+          view.showMessage("Clinic data loaded successfully.");
+        } else {
+          StringBuilder sb = new StringBuilder("Clinic data loaded, ")
+              .append(report.getRejectedCount()).append(" rows rejected.");
+          report.getDiagnostics().stream().limit(10)
+              .forEach(diagnostic -> sb.append('\n').append(diagnostic));
+          view.showMessage(sb.toString());
+        }
+      });
     } catch (IllegalStateException e) {
       view.showError("Failed to load clinic data: " + e.getMessage());
     }
@@ -229,9 +292,13 @@ public class ClinicGraphicalController implements ClinicController, ActionListen
   @Override
   public void clearRecords() {
     try {
-      model.clearRecords();
-      view.updateGraphics();
-      view.showMessage("All records cleared.");
+      apply("Clear records", m -> {
+        m.clearRecords();
+        return null;
+      }, cleared -> {
+        view.updateGraphics();
+        view.showMessage("All records cleared.");
+      });
     } catch (IllegalStateException e) {
       view.showError("Failed to clear records: " + e.getMessage());
     }   
@@ -240,23 +307,32 @@ public class ClinicGraphicalController implements ClinicController, ActionListen
   @Override
   public void registerNewPatient(String firstName, String lastName, String dob) {
     Patient patient = new Patient(firstName, lastName, dob);
-    model.addPatient(patient);
-    model.assignPatientToRoom(patient, model.getRoom(0)); // Assign to waiting room by default
-    view.updateView();
-    view.showMessage("Patient registered: " + patient.getFullName());
+    apply("Register patient", m -> {
+      m.addPatient(patient);
+      m.assignPatientToRoom(patient, m.getRoom(0)); // Assign to waiting room by default
+      return patient;
+    }, registered -> {
+      view.updateView();
+      view.showMessage("Patient registered: " + registered.getFullName());
+    });
   }
   
   @Override
   public void addInitialVisitRecord(String firstName, String lastName, 
       LocalDateTime visitTime, String chiefComplaint, double temperature) {
-    Patient patient = model.findPatientByName(firstName, lastName);
-    if (patient == null) {
-      view.showError("Patient not found.");
-      return;
-    }
-    VisitRecord visitRecord = new VisitRecord(visitTime, chiefComplaint, temperature);
-    patient.addVisitRecord(visitRecord);
-    view.updateView();
-    view.showMessage("Initial visit record added for " + patient.getFullName());
+    apply("Add visit record", m -> {
+      Patient patient = m.findPatientByName(firstName, lastName);
+      if (patient != null) {
+        m.addVisitRecord(patient, visitTime, chiefComplaint, temperature);
+      }
+      return patient;
+    }, patient -> {
+      if (patient == null) {
+        view.showError("Patient not found.");
+        return;
+      }
+      view.updateView();
+      view.showMessage("Initial visit record added for " + patient.getFullName());
+    });
   }
 }
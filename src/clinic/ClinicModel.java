@@ -1,18 +1,19 @@
 package clinic;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
-import java.time.LocalDate;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import javax.swing.SwingUtilities;
 
 /**
  *  Clinical Model setup, lets us communicate with the controller.
@@ -20,17 +21,56 @@ import java.util.stream.Collectors;
  */
 
 public class ClinicModel implements InterfaceClinicModel {
+  /**
+   * Default cap on how often the view is told the floor plan changed.
+   */
+  public static final int DEFAULT_MAX_FRAME_RATE = 30;
+  
   private List<Patient> patients = new ArrayList<>();
   private List<Staff> staffMembers = new ArrayList<>();
   private List<Room> rooms = new ArrayList<>();
-  private GraphicsHandler graphicsHandler;
+  private final SpatialIndex<Room> roomIndex = new SpatialIndex<>();
+  private Map<Room, Integer> roomPositions = new IdentityHashMap<>();
+  // Positions of each patient in the snapshot, a patient added twice is listed twice.
+  private Map<Patient, List<Integer>> patientPositions = new IdentityHashMap<>();
+  // Name indexes, buckets keep insertion order so the first registered match wins.
+  private Map<String, List<Patient>> patientsByName = new HashMap<>();
+  private Map<String, List<Staff>> staffByName = new HashMap<>();
+  // Room indexes, keyed case-insensitively.
+  private Map<String, Room> roomsByName = new HashMap<>();
+  private Map<String, List<Room>> roomsByType = new HashMap<>();
+  // Staff to patient assignments in both directions, the only ones the model reads.
+  // Patients and staff get a copy for their own read only accessors.
+  private AssignmentGraph assignments = new AssignmentGraph();
+  // Visits recorded through the model, stored column by column.
+  private ColumnarVisitStore visitStore = new ColumnarVisitStore();
+  private final TileRenderer tileRenderer = new TileRenderer();
+  private final RenderScheduler renderScheduler;
+  private volatile int bulkLoadDepth;
+  private volatile boolean renderDeferred;
+  private volatile boolean notifyDeferred;
   private InterfaceClinicView view;
+  // Snapshot being built by the writer, and the last one published to readers.
+  private ClinicSnapshot working = ClinicSnapshot.EMPTY;
+  private volatile ClinicSnapshot snapshot = ClinicSnapshot.EMPTY;
+  private volatile boolean publishDeferred;
+  private WriteAheadLog writeAheadLog;
+  private ClinicDataFollower follower;
   
   /**
-   * Creates our graphic size 800x600 pixels.
+   * Creates an empty clinic.
    */
   public ClinicModel() {
-    this.graphicsHandler = new GraphicsHandler(800, 600);
+    this(DEFAULT_MAX_FRAME_RATE);
+  }
+  
+  /**
+   * Creates an empty clinic whose view is told about changes at most
+   * the given number of times per second.
+   * @param maxFrameRate Maximum view updates per second.
+   */
+  public ClinicModel(int maxFrameRate) {
+    this.renderScheduler = new RenderScheduler(this::notifyViewLater, maxFrameRate);
     updateGraphics();
   }
   
@@ -42,43 +82,172 @@ public class ClinicModel implements InterfaceClinicModel {
     this.view = view;
   }
   
+  /**
+   * Attaches a write-ahead log, every later change to the model is appended
+   * to it before being applied. Replay the log into the model after
+   * attaching it to restore earlier changes.
+   * @param writeAheadLog Log to append to, or null to stop logging.
+   */
+  public void setWriteAheadLog(WriteAheadLog writeAheadLog) {
+    this.writeAheadLog = writeAheadLog;
+  }
+  
+  /**
+   * Starts applying lines as they are appended to a clinic data file, or
+   * to the files of a directory in name order. Lines are applied on the
+   * Swing event thread, where the controller changes the model, and the
+   * position reached is kept in the offset file so a restart carries on
+   * from there.
+   * @param sourcePath File or directory to follow.
+   * @param offsetPath File the position in the feed is kept in.
+   * @throws IOException If the offset file exists but cannot be read.
+   * @throws IllegalStateException If the model is already following a feed.
+   */
+  public void startFollowing(String sourcePath, String offsetPath) throws IOException {
+    if (follower != null) {
+      throw new IllegalStateException("Already following a clinic data feed.");
+    }
+    follower = new ClinicDataFollower(this, Paths.get(sourcePath), Paths.get(offsetPath),
+        SwingUtilities::invokeLater, ClinicDataFollower.DEFAULT_POLL_MILLIS);
+  }
+  
+  /**
+   * Stops following the clinic data feed, if any.
+   */
+  public void stopFollowing() {
+    if (follower != null) {
+      follower.stop(1000);
+      follower = null;
+    }
+  }
+  
+  /**
+   * Changes how often the view may be told the floor plan changed.
+   * @param maxFrameRate Maximum view updates per second.
+   */
+  public void setMaxFrameRate(int maxFrameRate) {
+    renderScheduler.setMaxFrameRate(maxFrameRate);
+  }
+  
+  /**
+   * Waits for all pending changes to be handed to the view.
+   * @param timeoutMillis Maximum time to wait.
+   * @return True if the view has been told about every change.
+   */
+  public boolean awaitRender(long timeoutMillis) {
+    return renderScheduler.awaitIdle(timeoutMillis);
+  }
+  
+  /**
+   * Stops following the clinic data feed and stops the render thread.
+   */
+  @Override
+  public void shutdown() {
+    stopFollowing();
+    renderScheduler.shutdown();
+  }
+  
+  @Override
+  public void exportFloorPlan(String path) throws IOException {
+    tileRenderer.export(snapshot, Paths.get(path)); // Reuses tiles unchanged since last time.
+  }
+  
+  @Override
+  public ClinicSnapshot getSnapshot() {
+    return snapshot;
+  }
+  
+  // Publishes the working state as the next snapshot version.
+  private void publishSnapshot() {
+    if (bulkLoadDepth > 0) {
+      publishDeferred = true;
+      return;
+    }
+    working = working.nextVersion();
+    snapshot = working;
+  }
+  
+  // Publishes the change, the view is told about bursts of changes once.
   private void updateGraphics() {
-    graphicsHandler.initializeGraphics();
-    for (Room room : rooms) {
-      boolean isOccupied = !room.getAssignedPatients().isEmpty();
-      List<String> patientNames = room.getAssignedPatients().stream()
-          .map(Patient::getName)
-          .collect(Collectors.toList());
-      List<String> staffNames = room.getAssignedPatients().stream()
-          .flatMap(p -> p.getAssignedClinicalStaff().stream())
-          .distinct()
-          .map(Staff::getFullName)
-          .collect(Collectors.toList());
-      
-      graphicsHandler.drawRoom(room.getX1(), room.getY1(), room.getX2() - room.getX1(),
-          room.getY2() - room.getY1(), room.getRoomName(), isOccupied,
-          patientNames, staffNames);
-    }
-    graphicsHandler.saveImage("clinic_layout.png");
-    notifyViewUpdate(); // Notify the view of updates
+    publishSnapshot();
+    if (bulkLoadDepth > 0) {
+      renderDeferred = true;
+      return;
+    }
+    renderScheduler.requestRender();
+  }
+  
+  @Override
+  public void beginBulkLoad() {
+    bulkLoadDepth++;
+  }
+  
+  @Override
+  public void commitBulkLoad() {
+    if (bulkLoadDepth == 0) {
+      throw new IllegalStateException("No bulk load in progress.");
+    }
+    if (--bulkLoadDepth > 0) {
+      return; // Nested bulk load, the outermost commit publishes the changes.
+    }
+    boolean publish = publishDeferred;
+    boolean render = renderDeferred;
+    boolean notify = notifyDeferred;
+    publishDeferred = false;
+    renderDeferred = false;
+    notifyDeferred = false;
+    if (publish) {
+      publishSnapshot(); // One new version for the whole bulk load.
+    }
+    if (render) {
+      renderScheduler.requestRender(); // Notifies the view once.
+    } else if (notify) {
+      notifyViewUpdate();
+    }
+  }
+  
+  // Runs on the scheduler's thread. The view draws the floor plan from the snapshot itself.
+  private void notifyViewLater() {
+    SwingUtilities.invokeLater(this::notifyViewUpdate); // Notify the view of updates
   }
   
   @Override
   public void addPatient(Patient patient) {
+    if (writeAheadLog != null) {
+      writeAheadLog.logAddPatient(patient);
+    }
     patients.add(patient);
+    patientsByName.computeIfAbsent(nameKey(patient.getFirstName(), patient.getLastName()), 
+        k -> new ArrayList<>(1)).add(patient);
+    patientPositions.computeIfAbsent(patient, k -> new ArrayList<>(1)).add(patients.size() - 1);
+    working = working.withPatient(patient);
     updateGraphics();
   }
 
   
   @Override
   public void addStaff(Staff staff) {
+    if (writeAheadLog != null) {
+      writeAheadLog.logAddStaff(staff);
+    }
     staffMembers.add(staff);
+    staffByName.computeIfAbsent(nameKey(staff.getFirstName(), staff.getLastName()), 
+        k -> new ArrayList<>(1)).add(staff);
+    working = working.withStaff(staff);
     updateGraphics();
   }
   
   @Override
   public void addRoom(Room room) {
+    if (writeAheadLog != null) {
+      writeAheadLog.logAddRoom(room);
+    }
+    roomPositions.putIfAbsent(room, rooms.size());
     rooms.add(room);
+    roomIndex.add(room, room.getX1(), room.getY1(), room.getX2(), room.getY2());
+    working = working.withRoom(room);
+    roomsByName.putIfAbsent(roomKey(room.getRoomName()), room);
+    roomsByType.computeIfAbsent(roomKey(room.getRoomType()), k -> new ArrayList<>()).add(room);
     updateGraphics();
   }
   
@@ -87,6 +256,21 @@ public class ClinicModel implements InterfaceClinicModel {
     return rooms.get(index);
   }
   
+  @Override
+  public Room findRoomByName(String roomName) {
+    return roomsByName.get(roomKey(roomName));
+  }
+  
+  @Override
+  public List<Room> findRoomsByType(String roomType) {
+    List<Room> matches = roomsByType.get(roomKey(roomType));
+    return matches == null ? new ArrayList<>() : new ArrayList<>(matches);
+  }
+  
+  private static String roomKey(String value) {
+    return value == null ? "" : value.toLowerCase(Locale.ROOT);
+  }
+  
   @Override
   public String getRoomDetails(int roomIndex) {
     Room room = getRoom(roomIndex);
@@ -98,14 +282,35 @@ public class ClinicModel implements InterfaceClinicModel {
     return new ArrayList<>(rooms);
   }
   
+  @Override
+  public Room findRoomAt(int x, int y) {
+    return roomIndex.findAt(x, y);
+  }
+  
+  @Override
+  public List<Room> findRoomsIn(int x1, int y1, int x2, int y2) {
+    return roomIndex.findIn(x1, y1, x2, y2);
+  }
+  
+  @Override
+  public Room findNearestRoom(int x, int y) {
+    return roomIndex.findNearest(x, y);
+  }
+  
   @Override
   public void activatePatient(Patient patient) {
+    if (writeAheadLog != null) {
+      writeAheadLog.logActivatePatient(patient);
+    }
     patient.activate();
     updateGraphics();
   }
   
   @Override 
   public void deactivatePatient(Patient patient, ClinicalStaff approver) {
+    if (writeAheadLog != null) {
+      writeAheadLog.logDeactivatePatient(patient, approver);
+    }
     patient.deactivate();
     patient.setDeactivationApprover(approver);
     updateGraphics();
@@ -113,12 +318,18 @@ public class ClinicModel implements InterfaceClinicModel {
   
   @Override 
   public void activateStaff(Staff staff) {
+    if (writeAheadLog != null) {
+      writeAheadLog.logActivateStaff(staff);
+    }
     staff.activate();
     updateGraphics();
   }
   
   @Override
   public void deactivateStaff(Staff staff) {
+    if (writeAheadLog != null) {
+      writeAheadLog.logDeactivateStaff(staff);
+    }
     staff.deactivate();
     updateGraphics();
   }
@@ -135,9 +346,7 @@ public class ClinicModel implements InterfaceClinicModel {
   
   @Override
   public String getSeatingChart() {
-    return rooms.stream()
-        .map(Room::toString)
-        .collect(Collectors.joining("\n"));
+    return snapshot.getSeatingChart();
   }
   
   @Override
@@ -145,6 +354,9 @@ public class ClinicModel implements InterfaceClinicModel {
     if (targetRoom == null) {
       throw new IllegalArgumentException("The target room cannot be null.");
     }
+    if (writeAheadLog != null) {
+      writeAheadLog.logAssignRoom(patient, targetRoom);
+    }
     Room currentRoom = patient.getAssignedRoom();    
     if (currentRoom != null) {
       currentRoom.removePatient(patient);
@@ -158,23 +370,74 @@ public class ClinicModel implements InterfaceClinicModel {
       targetRoom.assignPatient(defensiveCopy);
       defensiveCopy.assignRoom(targetRoom); 
     }
+    refreshRoomState(currentRoom);
+    refreshRoomState(targetRoom);
     updateGraphics();
   }
   
+  // Captures the occupancy of a room in the working snapshot.
+  private void refreshRoomState(Room room) {
+    Integer position = room == null ? null : roomPositions.get(room);
+    if (position != null) {
+      working = working.withRoomRefreshed(position);
+    }
+  }
+  
   @Override
   public Staff findStaffByName(String firstName, String lastName) {
-    return staffMembers.stream()
-        .filter(s -> s.getFirstName().equals(firstName) && s.getLastName().equals(lastName))
-        .findFirst()
-        .orElse(null);
+    List<Staff> matches = staffByName.get(nameKey(firstName, lastName));
+    return matches == null ? null : matches.get(0);
   }
   
   @Override
   public Patient findPatientByName(String firstName, String lastName) {
-    return patients.stream()
-        .filter(p -> p.getFirstName().equals(firstName) && p.getLastName().equals(lastName))
-        .findFirst()
-        .orElse(null);
+    List<Patient> matches = patientsByName.get(nameKey(firstName, lastName));
+    return matches == null ? null : matches.get(0);
+  }
+  
+  /**
+   * Finds every patient registered under the given name.
+   * @param firstName First name of patient.
+   * @param lastName Last name of patient.
+   * @return Matching patients in registration order, empty if none.
+   */
+  public List<Patient> findPatientsByName(String firstName, String lastName) {
+    List<Patient> matches = patientsByName.get(nameKey(firstName, lastName));
+    return matches == null ? new ArrayList<>() : new ArrayList<>(matches);
+  }
+  
+  // Names are indexed as registered, renaming a person after adding them is not tracked.
+  private static String nameKey(String firstName, String lastName) {
+    return firstName + '\u0000' + lastName;
+  }
+  
+  @Override
+  public InterfaceVisitRecord addVisitRecord(Patient patient, LocalDateTime visitTime, 
+      String chiefComplaint, double bodyTemperature) {
+    if (patient == null) {
+      throw new IllegalArgumentException("The patient cannot be null.");
+    }
+    if (writeAheadLog != null) {
+      writeAheadLog.logAddVisit(patient, visitTime, chiefComplaint, bodyTemperature);
+    }
+    InterfaceVisitRecord visitRecord = visitStore.append(visitTime, chiefComplaint, 
+        bodyTemperature);
+    patient.addVisitRecord(visitRecord);
+    for (int position : patientPositions.getOrDefault(patient, List.of())) {
+      working = working.withVisitsRefreshed(position);
+    }
+    publishSnapshot();
+    return visitRecord;
+  }
+  
+  @Override
+  public Map<String, Integer> getComplaintCounts() {
+    return visitStore.getComplaints().getCounts();
+  }
+  
+  @Override
+  public Map<YearMonth, Map<String, Integer>> getComplaintCountsByMonth() {
+    return visitStore.getComplaints().getMonthlyCounts();
   }
   
   @Override
@@ -184,81 +447,92 @@ public class ClinicModel implements InterfaceClinicModel {
   
   @Override
   public void assignClinicalStaffToPatient(ClinicalStaff staff, Patient patient) {
-    patient.addClinicalStaff(staff); // Adding staff directly to patient's list.
+    if (writeAheadLog != null) {
+      writeAheadLog.logAssignStaff(staff, patient);
+    }
+    if (assignments.assign(staff, patient)) {
+      patient.addClinicalStaff(staff); // Copies for the people's own accessors.
+      staff.assignPatient(patient);
+      publishSnapshot();
+    }
   }
   
   @Override
   public Set<ClinicalStaff> getClinicalStaffAssignedToPatient(Patient patient) {
-    return new HashSet<>(patient.getAssignedClinicalStaff()); // Convert list to set.
+    return new LinkedHashSet<>(assignments.staffOf(patient)); // In assignment order.
+  }
+  
+  /**
+   * Gets the patients a clinical staff member is assigned to.
+   * @param staff Staff member.
+   * @return Assigned patients.
+   */
+  public Set<Patient> getPatientsAssignedToClinicalStaff(ClinicalStaff staff) {
+    return new HashSet<>(assignments.patientsOf(staff));
   }
 
 
   @Override
   public List<ClinicalStaff> listActiveClinicalStaff() {
-    return patients.stream()
-        .flatMap(patient -> patient.getAssignedClinicalStaff().stream())
-        .distinct()
-        .filter(staff -> staff.isActive() && hasActivePatients(staff))
-        .collect(Collectors.toList());
-  }
-  
-  private boolean hasActivePatients(ClinicalStaff staff) {
-    return patients.stream()
-        .anyMatch(patient -> 
-            patient.getAssignedClinicalStaff().contains(staff) 
-            && patient.getActiveVisits().size() > 0);
+    // Single pass: collect the active staff of every patient with an open visit.
+    Set<ClinicalStaff> activeStaff = new LinkedHashSet<>();
+    for (Patient patient : patients) {
+      if (patient.hasActiveVisits()) {
+        for (ClinicalStaff staff : assignments.staffOf(patient)) {
+          if (staff.isActive()) {
+            activeStaff.add(staff);
+          }
+        }
+      }
+    }
+    return new ArrayList<>(activeStaff);
   }
 
   // List patients inactive for more than 365 days.
   @Override
   public List<Patient> listInactivePatients() {
-    LocalDate oneYearAgo = LocalDate.now().minusDays(365);
-    return patients.stream()
-        .filter(p -> p.getVisitRecords().stream()
-            .noneMatch(v -> v.getVisitTime().toLocalDate().isAfter(oneYearAgo)))
-        .collect(Collectors.toList());
+    return snapshot.listInactivePatients();
   }
 
   //Summary of patient visits over the past year
   @Override
   public Map<Patient, Long> patientVisitSummaryPastYear() {
-    return patients.stream()
-        .collect(Collectors.toMap(
-            patient -> patient, 
-            patient -> (long) patient.getVisitsLastYear().size(), 
-            (existing, replacement) -> existing, 
-            LinkedHashMap::new 
-        ));
+    return snapshot.patientVisitSummaryPastYear();
   }
 
   @Override
   public void unassignClinicalStaff(ClinicalStaff staff) {
-    patients.forEach(patient -> 
-        patient.getAssignedClinicalStaff().removeIf(s -> s.equals(staff)));
+    if (writeAheadLog != null) {
+      writeAheadLog.logUnassignStaff(staff);
+    }
+    for (Patient patient : assignments.unassignAll(staff)) {
+      patient.removeClinicalStaff(staff);
+      staff.unassignPatient(patient);
+    }
     updateGraphics();
   }
 
   @Override
   public void unassignClinicalStaffFromPatient(ClinicalStaff staff, Patient patient) {
     if (patient != null && staff != null) {
-      patient.getAssignedClinicalStaff().remove(staff);
+      if (writeAheadLog != null) {
+        writeAheadLog.logUnassignStaffFromPatient(staff, patient);
+      }
+      if (assignments.unassign(staff, patient)) {
+        patient.removeClinicalStaff(staff);
+        staff.unassignPatient(patient);
+      }
       updateGraphics();
     }    
   }
 
   @Override
   public Map<Staff, Integer> listStaffPatientCounts() {
-    Map<Staff, Integer> staffPatientCounts = new HashMap<>();
+    Map<Staff, Integer> counts = new HashMap<>();
     for (Staff staff : staffMembers) {
-      int count = 0;
-      for (Patient patient : patients) {
-        if (patient.getAssignedClinicalStaff().contains(staff)) {
-          count++;
-        }
-      }
-      staffPatientCounts.put(staff, count);
+      counts.put(staff, assignments.patientCount(staff));
     }
-    return staffPatientCounts;
+    return counts;
   }
 
 
@@ -266,8 +540,8 @@ public class ClinicModel implements InterfaceClinicModel {
   public Map<ClinicalStaff, List<Patient>> listActiveStaffWithPatients() {
     Map<ClinicalStaff, List<Patient>> activeStaffPatients = new HashMap<>();
     for (Patient patient : patients) {
-      if (!patient.getActiveVisits().isEmpty()) {
-        for (ClinicalStaff staff : patient.getAssignedClinicalStaff()) {
+      if (patient.hasActiveVisits()) {
+        for (ClinicalStaff staff : assignments.staffOf(patient)) {
           activeStaffPatients.computeIfAbsent(staff, k -> new ArrayList<>()).add(patient); 
         } 
       }
@@ -277,6 +551,10 @@ public class ClinicModel implements InterfaceClinicModel {
 
   @Override
   public void notifyViewUpdate() {
+    if (bulkLoadDepth > 0) {
+      notifyDeferred = true;
+      return;
+    }
     if (view != null) {
       try {
         System.out.println("Notifying the view to update graphics...");
@@ -291,139 +569,50 @@ public class ClinicModel implements InterfaceClinicModel {
   }
 
   @Override
-  public void loadClinicData(String filePath) {    
-    try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-      String line;
-      while ((line = reader.readLine()) != null) {
-        line = line.trim();
-        if (line.isEmpty() || line.startsWith("#")) {
-          continue;
-        }
-        String[] parts = line.split(",\\s*");
-        switch (parts[0].toLowerCase()) {
-          case "room":
-            // Room, name, type, x1, y1, x2, y2
-            String roomName = parts[1];
-            String roomType = parts[2];
-            int x1 = Integer.parseInt(parts[3]);
-            int y1 = Integer.parseInt(parts[4]);
-            int x2 = Integer.parseInt(parts[5]);
-            int y2 = Integer.parseInt(parts[6]);
-            addRoom(new Room(x1, y1, x2, y2, roomType, roomName));
-            break;
-           
-          case "staff":
-            // Staff, name, role, education, npi
-            String staffName = parts[1];
-            String role = parts[2];
-            String educationLevel = parts[3];
-            String npi = parts.length > 4 ? parts[4] : null;
-
-            String[] nameParts = staffName.split("\\s+");
-            String firstName = nameParts[0];
-            String lastName = nameParts.length > 1 ? nameParts[1] : "";
-            
-            if ("Doctor".equalsIgnoreCase(role) || "Physician".equalsIgnoreCase(role)) {
-              addStaff(new ClinicalStaff(firstName, lastName, educationLevel, npi, role));
-            } else {
-              addStaff(new NonClinicalStaff(firstName, lastName, 
-                  educationLevel, "Basic", role));    
-            }           
-            break;
-           
-          case "patient":
-            // Patient, name, dob, visitTime, complaint, temperature
-            String patientName = parts[1].trim();
-            String dob = parts[2].trim();
-            String[] patientNameParts = patientName.split("\\s+");
-            String patientFirstName = patientNameParts[0];
-            String patientLastName = patientNameParts.length > 1 ? patientNameParts[1] : "";
-
-            Patient patient = new Patient(patientFirstName, patientLastName, dob);
-            addPatient(patient);
-            
-            // Adding a visit record if provided
-            if (parts.length > 3) {
-              try {
-                LocalDateTime visitTime = LocalDateTime.parse(parts[3].trim());
-                String chiefComplaint = parts[4].trim();
-                double temperature = Double.parseDouble(parts[5].trim());
+  public LoadReport loadClinicData(String filePath) {
+    return loadClinicData(filePath, null);
+  }
 
-                InterfaceVisitRecord visitRecord = new VisitRecord(visitTime, 
-                    chiefComplaint, temperature);
-                patient.addVisitRecord(visitRecord);
-              
-              } catch (IllegalStateException e) {
-                System.err.println("Error parsing visit record for patient: " 
-                    + patientName + ". Skipping visit record.");  
-              }  
-            }   
-            break;
-            
-          case "assign":
-            // Assign, patientName, roomName
-            Patient assignPatient = findPatientByName(parts[1].split(" ")[0], 
-                parts[1].split(" ")[1]);
-            Room assignRoom = rooms.stream()
-                    .filter(r -> r.getRoomName().equalsIgnoreCase(parts[2]))
-                    .findFirst()
-                    .orElse(null);
-            if (assignPatient != null && assignRoom != null) {
-              assignPatientToRoom(assignPatient, assignRoom);
-            }
-            break;
-            
-          case "assignstaff":
-            // AssignStaff, patientName, staffName
-            Patient staffPatient = findPatientByName(parts[1].split(" ")[0], 
-                parts[1].split(" ")[1]);
-            Staff assignStaff = findStaffByName(parts[2].split(" ")[0], 
-                parts[2].split(" ")[1]);
-            if (staffPatient != null && assignStaff instanceof ClinicalStaff) {
-              assignClinicalStaffToPatient((ClinicalStaff) assignStaff, staffPatient);
-            }
-            break;
-           
-          case "deactivatestaff":
-            // DeactivateStaff, staffName
-            Staff deactivateStaff = findStaffByName(parts[1].split(" ")[0], parts[1].split(" ")[1]);
-            if (deactivateStaff != null) {
-              deactivateStaff(deactivateStaff);
-            }
-            break;
-            
-          case "sendhome":
-            // SendHome, patientName, approvingStaff
-            Patient sendHomePatient = findPatientByName(parts[1].split(" ")[0], 
-                parts[1].split(" ")[1]);
-            ClinicalStaff approvingStaff = (ClinicalStaff) 
-                findStaffByName(parts[2].split(" ")[0], parts[2].split(" ")[1]);
-            if (sendHomePatient != null && approvingStaff != null) {
-              deactivatePatient(sendHomePatient, approvingStaff);
-              
-            }
-            break;
-            
-          default:
-            System.err.println("Unknown directive: " + parts[0]);
-        }    
+  @Override
+  public LoadReport loadClinicData(String filePath, String quarantinePath) {
+    long start = System.nanoTime();
+    LoadReporter reporter = new LoadReporter(new ClinicDataApplier(this, true));
+    long lineCount = 0;
+    String failure = null;
+    beginBulkLoad(); // Render and notify once, after the whole file is applied.
+    try {
+      if (quarantinePath != null) {
+        reporter.openQuarantine(Paths.get(quarantinePath));
       }
+      lineCount = new ParallelClinicDataParser().parse(Paths.get(filePath), reporter);
     } catch (IOException e) {
-      System.err.println("Error reading clinic data file: " + e.getMessage());
-      e.printStackTrace();
-    } catch (NumberFormatException e) {
-      System.err.println("Error parsing number in clinic data: " + e.getMessage());
-    } catch (ArrayIndexOutOfBoundsException e) {
-      System.err.println("Malformed line in clinic data file: " + e.getMessage());
+      failure = e.getMessage(); // Reported to the caller with the rest of the load.
+    } finally {
+      reporter.closeQuarantine();
+      notifyDeferred = true; // Update view after loading data.
+      commitBulkLoad();
     }
-    notifyViewUpdate(); // Update view after loading data.    
+    return reporter.finish(lineCount, System.nanoTime() - start, failure);
   }
 
   @Override
   public void clearRecords() {
+    if (writeAheadLog != null) {
+      writeAheadLog.logClear();
+    }
     patients.clear();
     staffMembers.clear();
     rooms.clear();
-    notifyViewUpdate(); // Update view after clearing records.    
+    roomIndex.clear();
+    roomPositions.clear();
+    patientPositions.clear();
+    patientsByName.clear();
+    staffByName.clear();
+    roomsByName.clear();
+    roomsByType.clear();
+    assignments.clear();
+    visitStore = new ColumnarVisitStore(); // Views handed out before keep the old rows.
+    working = working.cleared();
+    updateGraphics(); // The view shows the empty plan once it is notified.
   }
 }
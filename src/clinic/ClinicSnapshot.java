@@ -0,0 +1,312 @@
+package clinic;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, versioned view of the clinic published by the model after
+ * each committed change. Readers can hold on to a snapshot without any
+ * locking, it never changes underneath them and never blocks writers.
+ * Consecutive snapshots share all of their unchanged structure, and each
+ * remembers which rooms changed over its recent versions so a floor plan
+ * can redraw just those.
+ */
+public final class ClinicSnapshot {
+  /**
+   * Snapshot of a clinic with nothing in it.
+   */
+  public static final ClinicSnapshot EMPTY = new ClinicSnapshot(0, PersistentVector.empty(),
+      PersistentVector.empty(), PersistentVector.empty(), PersistentVector.empty(),
+      PersistentVector.empty(), null, 0);
+
+  // Room changes remembered before older versions are reported as unknown.
+  private static final int MAX_ROOM_CHANGES = 1024;
+
+  private final long version;
+  private final PersistentVector<Patient> patients;
+  // Each patient's visits at the time of the snapshot, in the same order as the patients.
+  private final PersistentVector<PersistentVector<InterfaceVisitRecord>> visits;
+  private final PersistentVector<Staff> staff;
+  private final PersistentVector<Room> rooms;
+  private final PersistentVector<RoomState> roomStates;
+  // Newest room change first, complete for every version from changesSince on.
+  private final RoomChange changes;
+  private final long changesSince;
+
+  private ClinicSnapshot(long version, PersistentVector<Patient> patients,
+      PersistentVector<PersistentVector<InterfaceVisitRecord>> visits,
+      PersistentVector<Staff> staff, PersistentVector<Room> rooms,
+      PersistentVector<RoomState> roomStates, RoomChange changes, long changesSince) {
+    this.version = version;
+    this.patients = patients;
+    this.visits = visits;
+    this.staff = staff;
+    this.rooms = rooms;
+    this.roomStates = roomStates;
+    this.changes = changes;
+    this.changesSince = changesSince;
+  }
+
+  /**
+   * Builds a snapshot from plain lists, for models that do not keep one.
+   * @param patients Patients of the clinic.
+   * @param staff Staff of the clinic.
+   * @param rooms Rooms of the clinic.
+   * @return Snapshot of the lists.
+   */
+  public static ClinicSnapshot of(List<Patient> patients, List<Staff> staff, List<Room> rooms) {
+    ClinicSnapshot snapshot = EMPTY;
+    for (Patient patient : patients) {
+      snapshot = snapshot.withPatient(patient);
+    }
+    for (Staff member : staff) {
+      snapshot = snapshot.withStaff(member);
+    }
+    for (Room room : rooms) {
+      snapshot = snapshot.withRoom(room);
+    }
+    return snapshot;
+  }
+
+  ClinicSnapshot withPatient(Patient patient) {
+    return new ClinicSnapshot(version, patients.plus(patient),
+        visits.plus(patient.visitHistory()), staff, rooms, roomStates, changes, changesSince);
+  }
+
+  // Captures the current visits of the patient at the given position.
+  ClinicSnapshot withVisitsRefreshed(int index) {
+    return new ClinicSnapshot(version, patients,
+        visits.with(index, patients.get(index).visitHistory()), staff, rooms, roomStates,
+        changes, changesSince);
+  }
+
+  ClinicSnapshot withStaff(Staff member) {
+    return new ClinicSnapshot(version, patients, visits, staff.plus(member), rooms,
+        roomStates, changes, changesSince);
+  }
+
+  ClinicSnapshot withRoom(Room room) {
+    return withRoomChange(rooms.plus(room), roomStates.plus(new RoomState(room)),
+        rooms.size());
+  }
+
+  // Captures the current occupancy of the room at the given position.
+  ClinicSnapshot withRoomRefreshed(int index) {
+    RoomState state = new RoomState(rooms.get(index));
+    if (state.sameOccupancy(roomStates.get(index))) {
+      return this; // Nothing to redraw.
+    }
+    return withRoomChange(rooms, roomStates.with(index, state), index);
+  }
+
+  // The change becomes visible with the next published version.
+  private ClinicSnapshot withRoomChange(PersistentVector<Room> newRooms,
+      PersistentVector<RoomState> newStates, int index) {
+    if (changes != null && changes.depth >= MAX_ROOM_CHANGES) {
+      // Forget the history, anything drawn before the next version is redrawn in full.
+      return new ClinicSnapshot(version, patients, visits, staff, newRooms, newStates, null,
+          version + 1);
+    }
+    return new ClinicSnapshot(version, patients, visits, staff, newRooms, newStates,
+        new RoomChange(index, version + 1, changes), changesSince);
+  }
+
+  ClinicSnapshot cleared() {
+    return new ClinicSnapshot(version, PersistentVector.empty(), PersistentVector.empty(),
+        PersistentVector.empty(), PersistentVector.empty(), PersistentVector.empty(), null,
+        version + 1);
+  }
+
+  ClinicSnapshot nextVersion() {
+    return new ClinicSnapshot(version + 1, patients, visits, staff, rooms, roomStates, changes,
+        changesSince);
+  }
+
+  /**
+   * Gets the version, it grows by one with each published change.
+   * @return Snapshot version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Gets the patients, in registration order.
+   * @return Read only list of patients.
+   */
+  public List<Patient> getPatients() {
+    return patients;
+  }
+
+  /**
+   * Gets the staff, in registration order.
+   * @return Read only list of staff.
+   */
+  public List<Staff> getStaff() {
+    return staff;
+  }
+
+  /**
+   * Gets the rooms, in the order they were added.
+   * @return Read only list of rooms.
+   */
+  public List<Room> getRooms() {
+    return rooms;
+  }
+
+  /**
+   * Gets the occupancy of each room, in the same order as the rooms.
+   * @return Read only list of room states.
+   */
+  public List<RoomState> getRoomStates() {
+    return roomStates;
+  }
+
+  /**
+   * Lists the rooms that changed since an earlier version of this
+   * snapshot, including rooms added since.
+   * @param olderVersion Version of an earlier snapshot of the same model.
+   * @return Positions of the changed rooms in order, or null if they are not
+   *     known and every room should be treated as changed.
+   */
+  public List<Integer> changedRoomsSince(long olderVersion) {
+    if (olderVersion < changesSince || olderVersion > version) {
+      return null;
+    }
+    TreeSet<Integer> changed = new TreeSet<>();
+    for (RoomChange c = changes; c != null && c.version > olderVersion; c = c.next) {
+      changed.add(c.index);
+    }
+    return new ArrayList<>(changed);
+  }
+
+  /**
+   * Returns the seating chart for our clinic.
+   * @return Clinic seating chart.
+   */
+  public String getSeatingChart() {
+    return rooms.stream()
+        .map(Room::toString)
+        .collect(Collectors.joining("\n"));
+  }
+
+  /**
+   * Gets a patient's visits at the time of the snapshot.
+   * @param index Position of the patient in getPatients.
+   * @return Read only list of visits, oldest first.
+   */
+  public List<InterfaceVisitRecord> getVisits(int index) {
+    return visits.get(index);
+  }
+
+  /**
+   * Lists patients with no visit in the last 365 days.
+   * @return Inactive patients.
+   */
+  public List<Patient> listInactivePatients() {
+    // Visits on any day after the cutoff day count as activity.
+    LocalDateTime activeSince = LocalDate.now().minusDays(364).atStartOfDay();
+    List<Patient> inactive = new ArrayList<>();
+    for (int i = 0; i < patients.size(); i++) {
+      if (!Patient.hasVisitSince(visits.get(i), activeSince)) {
+        inactive.add(patients.get(i));
+      }
+    }
+    return inactive;
+  }
+
+  /**
+   * Counts each patient's visits over the past year.
+   * @return Visit count per patient, in registration order.
+   */
+  public Map<Patient, Long> patientVisitSummaryPastYear() {
+    LocalDateTime oneYearAgo = LocalDateTime.now().minusDays(365);
+    Map<Patient, Long> summary = new LinkedHashMap<>();
+    for (int i = 0; i < patients.size(); i++) {
+      summary.putIfAbsent(patients.get(i), (long) Patient.countVisitsAfter(visits.get(i),
+          oneYearAgo));
+    }
+    return summary;
+  }
+
+  /**
+   * Occupancy of one room at the time of the snapshot.
+   */
+  public static final class RoomState {
+    private final Room room;
+    private final List<String> patientNames;
+    private final List<String> staffNames;
+
+    private RoomState(Room room) {
+      this.room = room;
+      List<Patient> occupants = List.copyOf(room.getAssignedPatients());
+      this.patientNames = occupants.stream()
+          .map(Patient::getName)
+          .collect(Collectors.toUnmodifiableList());
+      this.staffNames = occupants.stream()
+          .flatMap(p -> p.getAssignedClinicalStaff().stream())
+          .distinct()
+          .map(Staff::getFullName)
+          .collect(Collectors.toUnmodifiableList());
+    }
+
+    /**
+     * Gets the room.
+     * @return Room.
+     */
+    public Room getRoom() {
+      return room;
+    }
+
+    /**
+     * Checks if the room was occupied.
+     * @return True if any patient was in the room.
+     */
+    public boolean isOccupied() {
+      return !patientNames.isEmpty();
+    }
+
+    /**
+     * Gets the names of the patients in the room.
+     * @return Patient names.
+     */
+    public List<String> getPatientNames() {
+      return patientNames;
+    }
+
+    /**
+     * Gets the names of the staff looking after the patients in the room.
+     * @return Staff names.
+     */
+    public List<String> getStaffNames() {
+      return staffNames;
+    }
+
+    private boolean sameOccupancy(RoomState other) {
+      return patientNames.equals(other.patientNames) && staffNames.equals(other.staffNames);
+    }
+  }
+
+  /**
+   * One room change, linked to the changes before it.
+   */
+  private static final class RoomChange {
+    private final int index;
+    private final long version;
+    private final int depth;
+    private final RoomChange next;
+
+    private RoomChange(int index, long version, RoomChange next) {
+      this.index = index;
+      this.version = version;
+      this.depth = next == null ? 1 : next.depth + 1;
+      this.next = next;
+    }
+  }
+}
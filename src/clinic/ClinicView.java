@@ -5,13 +5,14 @@ import java.awt.BorderLayout;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.Image;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowEvent;
 import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ExecutionException;
 import javax.swing.BoxLayout;
-import javax.swing.ImageIcon;
 import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -21,6 +22,7 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.SwingWorker;
 
 /**
  * Swing based implementation of the clinic's GUI.
@@ -29,7 +31,7 @@ public class ClinicView extends JFrame implements InterfaceClinicView {
   private static final long serialVersionUID = 1L;
   private final InterfaceClinicModel model;
   private ClinicGraphicalController controller;
-  private JPanel mainPanel;
+  private GraphicsPanel mainPanel;
   private JLabel statusLabel;
   // Support for clicking
   private Room selectedRoom;
@@ -89,10 +91,15 @@ public class ClinicView extends JFrame implements InterfaceClinicView {
     loadItem.addActionListener(e -> showFileChooser());
     JMenuItem clearItem = new JMenuItem("Clear Records");
     clearItem.addActionListener(e -> controller.clearRecords());
+    JMenuItem exportItem = new JMenuItem("Export Floor Plan");
+    exportItem.addActionListener(e -> showExportChooser(exportItem));
     JMenuItem exitItem = new JMenuItem("Exit");
-    exitItem.addActionListener(e -> System.exit(0));
+    // Closes the window like the title bar button, so the model is saved first
+    exitItem.addActionListener(e -> dispatchEvent(new WindowEvent(this,
+        WindowEvent.WINDOW_CLOSING)));
     fileMenu.add(loadItem);
     fileMenu.add(clearItem);
+    fileMenu.add(exportItem);
     fileMenu.addSeparator();
     fileMenu.add(exitItem);
 
@@ -149,6 +156,39 @@ public class ClinicView extends JFrame implements InterfaceClinicView {
     }
   }
 
+  /**
+   * Saves a PNG snapshot of the current floor plan on request.
+   */
+  // Exports in the background, a large plan takes seconds. The menu item is off meanwhile.
+  private void showExportChooser(JMenuItem exportItem) {
+    JFileChooser fileChooser = new JFileChooser();
+    fileChooser.setSelectedFile(new File("clinic_layout.png"));
+    if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+      File selectedFile = fileChooser.getSelectedFile();
+      exportItem.setEnabled(false);
+      new SwingWorker<Void, Void>() {
+        @Override
+        protected Void doInBackground() throws IOException {
+          model.exportFloorPlan(selectedFile.getAbsolutePath());
+          return null;
+        }
+
+        @Override
+        protected void done() {
+          exportItem.setEnabled(true);
+          try {
+            get();
+            showMessage("Floor plan exported: " + selectedFile.getName());
+          } catch (ExecutionException e) {
+            showError("Error exporting floor plan: " + e.getCause().getMessage());
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+      }.execute();
+    }
+  }
+
   @Override
   public void showWelcomeScreen() {
     mainPanel.removeAll();
@@ -177,23 +217,14 @@ public class ClinicView extends JFrame implements InterfaceClinicView {
 
   @Override
   public void updateGraphics() {
-    // Clear the main panel to prepare for new content
-    mainPanel.removeAll();
-
-    // Reload the updated image from the file
-    ImageIcon clinicImage = new ImageIcon("clinic_layout.png");
-
-    // Scale the image to fit the main panel size if necessary
-    Image scaledImage = clinicImage.getImage().getScaledInstance(
-            mainPanel.getWidth(), mainPanel.getHeight(), Image.SCALE_SMOOTH);
-    JLabel graphicLabel = new JLabel(new ImageIcon(scaledImage));
-
-    // Add the updated image to the panel
-    mainPanel.add(graphicLabel, BorderLayout.CENTER);
+    // Remove the welcome screen so the floor plan shows through
+    if (mainPanel.getComponentCount() > 0) {
+      mainPanel.removeAll();
+      mainPanel.revalidate();
+    }
 
-    // Re-validate and repaint to ensure proper rendering
-    mainPanel.revalidate();
-    mainPanel.repaint();
+    // The panel draws the visible rooms of the latest snapshot at its own zoom
+    mainPanel.showSnapshot(model.getSnapshot());
 
     // Debugging message
     System.out.println("Graphics updated successfully.");
@@ -303,10 +334,7 @@ public class ClinicView extends JFrame implements InterfaceClinicView {
       if (roomName == null) {
         return; // Cancelled
       }
-      selectedRoom = model.getAllRooms().stream()
-              .filter(room -> room.getRoomName().equalsIgnoreCase(roomName))
-              .findFirst()
-              .orElse(null);
+      selectedRoom = model.findRoomByName(roomName);
     }
     if (selectedPatient == null) {
       String patientName = getUserInput("No patient selected on the map. "
@@ -1,6 +1,7 @@
 package clinic;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -113,7 +114,7 @@ public class ClinicalStaff extends Staff implements InterfaceStaff {
 
   @Override
   public List<Patient> getAssignedPatients() {
-    return new ArrayList<>(assignedPatients); // Copy returned, protect internal list.
+    return Collections.unmodifiableList(assignedPatients); // Read only, protect internal list.
   }
 
   @Override
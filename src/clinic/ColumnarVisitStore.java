@@ -0,0 +1,177 @@
+package clinic;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Stores visit records column by column in primitive arrays instead of
+ * one object per visit. Visit times are kept as epoch seconds and nanos,
+ * temperatures as floats and chief complaints as codes into a complaint
+ * dictionary. Records are handed out as small flyweight views over a row
+ * of the store. Rows are only ever added, so views stay valid for as long
+ * as the store is around; to start over, create a new store.
+ *
+ * <p>Visits added through the model have no way to be completed, so the
+ * views always report them as incomplete.
+ */
+public class ColumnarVisitStore {
+  private static final int INITIAL_CAPACITY = 16;
+
+  // Nanos of a visit without a time.
+  private static final int NO_TIME = -1;
+
+  private long[] visitSeconds = new long[INITIAL_CAPACITY];
+  private int[] visitNanos = new int[INITIAL_CAPACITY];
+  private float[] temperatures = new float[INITIAL_CAPACITY];
+  private int[] complaintCodes = new int[INITIAL_CAPACITY];
+  private int size;
+  private final ComplaintDictionary complaints;
+
+  /**
+   * Creates an empty store with its own complaint dictionary.
+   */
+  public ColumnarVisitStore() {
+    this(new ComplaintDictionary());
+  }
+
+  /**
+   * Creates an empty store that encodes complaints with the given dictionary.
+   * @param complaints Dictionary recording the complaints of stored visits.
+   */
+  public ColumnarVisitStore(ComplaintDictionary complaints) {
+    if (complaints == null) {
+      throw new IllegalArgumentException("The complaint dictionary cannot be null.");
+    }
+    this.complaints = complaints;
+  }
+
+  /**
+   * Adds a visit to the store.
+   * @param visitTime Time which the patient visited, may be null.
+   * @param chiefComplaint Note to keep on the patient.
+   * @param bodyTemperature Patient body temperature in C.
+   * @return View of the stored visit.
+   */
+  public InterfaceVisitRecord append(LocalDateTime visitTime, String chiefComplaint,
+      double bodyTemperature) {
+    ensureCapacity(size + 1);
+    if (visitTime == null) {
+      visitNanos[size] = NO_TIME;
+    } else {
+      visitSeconds[size] = visitTime.toEpochSecond(ZoneOffset.UTC);
+      visitNanos[size] = visitTime.getNano();
+    }
+    temperatures[size] = (float) (Math.round(bodyTemperature * 10.0) / 10.0);
+    complaintCodes[size] = complaints.record(chiefComplaint, visitTime);
+    return new Visit(size++);
+  }
+
+  /**
+   * Gets a view of a stored visit.
+   * @param index Row of the visit.
+   * @return View of the visit.
+   */
+  public InterfaceVisitRecord get(int index) {
+    checkIndex(index);
+    return new Visit(index);
+  }
+
+  /**
+   * Number of visits stored.
+   * @return Visit count.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Number of distinct chief complaints stored.
+   * @return Complaint count.
+   */
+  public int complaintCount() {
+    return complaints.size();
+  }
+
+  /**
+   * Gets the dictionary the complaints are encoded with.
+   * @return Complaint dictionary.
+   */
+  public ComplaintDictionary getComplaints() {
+    return complaints;
+  }
+
+  private void ensureCapacity(int capacity) {
+    if (capacity > visitSeconds.length) {
+      int newCapacity = Math.max(capacity, visitSeconds.length + (visitSeconds.length >> 1));
+      visitSeconds = Arrays.copyOf(visitSeconds, newCapacity);
+      visitNanos = Arrays.copyOf(visitNanos, newCapacity);
+      temperatures = Arrays.copyOf(temperatures, newCapacity);
+      complaintCodes = Arrays.copyOf(complaintCodes, newCapacity);
+    }
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("No visit at index " + index);
+    }
+  }
+
+  /**
+   * Flyweight view over one row of the store.
+   */
+  private final class Visit implements InterfaceVisitRecord {
+    private final int index;
+
+    private Visit(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public LocalDateTime getVisitTime() {
+      int nanos = visitNanos[index];
+      return nanos == NO_TIME ? null
+          : LocalDateTime.ofEpochSecond(visitSeconds[index], nanos, ZoneOffset.UTC);
+    }
+
+    @Override
+    public String getChiefComplaint() {
+      return complaints.decode(complaintCodes[index]);
+    }
+
+    @Override
+    public double getBodyTemperature() {
+      return Math.round(temperatures[index] * 10.0) / 10.0;
+    }
+
+    @Override
+    public boolean isVisitComplete() {
+      return false;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Visit)) {
+        return false;
+      }
+      Visit visit = (Visit) other;
+      return visit.index == index && visit.store() == store();
+    }
+
+    @Override
+    public int hashCode() {
+      return index;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("Visit on %s: Complaint: %s, Temperature: %.1f°C, Completed: %s",
+          getVisitTime(), getChiefComplaint(), getBodyTemperature(),
+          isVisitComplete() ? "Yes" : "No");
+    }
+
+    private ColumnarVisitStore store() {
+      return ColumnarVisitStore.this;
+    }
+  }
+}
@@ -0,0 +1,116 @@
+package clinic;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Interns chief complaints into small integer codes so each distinct
+ * complaint is stored once. Also keeps count of how often each complaint
+ * was recorded, in total and per calendar month. Codes are only ever
+ * added, so decoding reads an array without locking. Each visit store
+ * has its own dictionary, which goes away with the store.
+ */
+public class ComplaintDictionary {
+  // Complaints by code. Written under the lock, then published by writing the field again.
+  private volatile String[] complaints = new String[8];
+  private volatile int size;
+  private final Map<String, Integer> codes = new HashMap<>();
+  private int[] counts = new int[8];
+  private final TreeMap<YearMonth, int[]> monthlyCounts = new TreeMap<>();
+
+  /**
+   * Gets the code for a complaint, adding it if it is new.
+   * @param complaint Chief complaint.
+   * @return Code of the complaint.
+   */
+  public synchronized int intern(String complaint) {
+    Integer code = codes.get(complaint);
+    if (code == null) {
+      code = size;
+      String[] grown = code < complaints.length ? complaints
+          : Arrays.copyOf(complaints, complaints.length * 2);
+      grown[code] = complaint;
+      complaints = grown;
+      size = code + 1;
+      codes.put(complaint, code);
+    }
+    return code;
+  }
+
+  /**
+   * Interns a complaint and counts one visit for it.
+   * @param complaint Chief complaint.
+   * @param visitTime Time of the visit, used for the monthly count.
+   * @return Code of the complaint.
+   */
+  public synchronized int record(String complaint, LocalDateTime visitTime) {
+    int code = intern(complaint);
+    counts = increment(counts, code);
+    if (visitTime != null) {
+      monthlyCounts.compute(YearMonth.from(visitTime),
+          (month, monthCounts) -> increment(monthCounts == null ? new int[8] : monthCounts, code));
+    }
+    return code;
+  }
+
+  /**
+   * Gets the complaint for a code.
+   * @param code Code of the complaint.
+   * @return Chief complaint.
+   * @throws IndexOutOfBoundsException If no complaint has the code.
+   */
+  public String decode(int code) {
+    if (code < 0 || code >= size) {
+      throw new IndexOutOfBoundsException("No complaint with code " + code);
+    }
+    return complaints[code];
+  }
+
+  /**
+   * Number of distinct complaints.
+   * @return Complaint count.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Counts how often each complaint was recorded.
+   * @return Counts keyed by complaint, in the order complaints were first seen.
+   */
+  public synchronized Map<String, Integer> getCounts() {
+    return toMap(counts);
+  }
+
+  /**
+   * Counts how often each complaint was recorded per calendar month.
+   * @return Counts keyed by month, oldest month first.
+   */
+  public synchronized Map<YearMonth, Map<String, Integer>> getMonthlyCounts() {
+    Map<YearMonth, Map<String, Integer>> result = new LinkedHashMap<>();
+    monthlyCounts.forEach((month, monthCounts) -> result.put(month, toMap(monthCounts)));
+    return result;
+  }
+
+  private Map<String, Integer> toMap(int[] complaintCounts) {
+    Map<String, Integer> result = new LinkedHashMap<>();
+    for (int code = 0; code < complaintCounts.length && code < size; code++) {
+      if (complaintCounts[code] > 0) {
+        result.put(complaints[code], complaintCounts[code]);
+      }
+    }
+    return result;
+  }
+
+  private static int[] increment(int[] complaintCounts, int code) {
+    int[] grown = code < complaintCounts.length ? complaintCounts
+        : Arrays.copyOf(complaintCounts, Math.max(code + 1, complaintCounts.length * 2));
+    grown[code]++;
+    return grown;
+  }
+}
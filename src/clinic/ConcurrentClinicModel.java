@@ -0,0 +1,289 @@
+package clinic;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Thread safe clinic model for several front desks and batch jobs at once.
+ * Wraps another model with a read/write lock: lookups and reports share the
+ * read lock and run in parallel, changes take the write lock one at a time.
+ * Reports served from the published snapshot skip the lock altogether.
+ * A bulk load holds the write lock from begin to commit, so it has to be
+ * committed on the thread that began it.
+ */
+public class ConcurrentClinicModel implements InterfaceClinicModel {
+  private final InterfaceClinicModel model;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+  /**
+   * Wraps a model so it can be shared between threads.
+   * @param model Model to guard, it should not be used directly afterwards.
+   */
+  public ConcurrentClinicModel(InterfaceClinicModel model) {
+    if (model == null) {
+      throw new IllegalArgumentException("The model cannot be null.");
+    }
+    this.model = model;
+  }
+
+  private <T> T read(Supplier<T> action) {
+    return locked(lock.readLock(), action);
+  }
+
+  private <T> T write(Supplier<T> action) {
+    return locked(lock.writeLock(), action);
+  }
+
+  private void write(Runnable action) {
+    locked(lock.writeLock(), () -> {
+      action.run();
+      return null;
+    });
+  }
+
+  private static <T> T locked(Lock guard, Supplier<T> action) {
+    guard.lock();
+    try {
+      return action.get();
+    } finally {
+      guard.unlock();
+    }
+  }
+
+  @Override
+  public void addPatient(Patient patient) {
+    write(() -> model.addPatient(patient));
+  }
+
+  @Override
+  public void addStaff(Staff staff) {
+    write(() -> model.addStaff(staff));
+  }
+
+  @Override
+  public void addRoom(Room room) {
+    write(() -> model.addRoom(room));
+  }
+
+  @Override
+  public Room getRoom(int index) {
+    return read(() -> model.getRoom(index));
+  }
+
+  @Override
+  public Room findRoomByName(String roomName) {
+    return read(() -> model.findRoomByName(roomName));
+  }
+
+  @Override
+  public List<Room> findRoomsByType(String roomType) {
+    return read(() -> model.findRoomsByType(roomType));
+  }
+
+  @Override
+  public String getRoomDetails(int roomIndex) {
+    return read(() -> model.getRoomDetails(roomIndex));
+  }
+
+  @Override
+  public List<Room> getAllRooms() {
+    return read(model::getAllRooms);
+  }
+
+  @Override
+  public Room findRoomAt(int x, int y) {
+    return read(() -> model.findRoomAt(x, y));
+  }
+
+  @Override
+  public List<Room> findRoomsIn(int x1, int y1, int x2, int y2) {
+    return read(() -> model.findRoomsIn(x1, y1, x2, y2));
+  }
+
+  @Override
+  public Room findNearestRoom(int x, int y) {
+    return read(() -> model.findNearestRoom(x, y));
+  }
+
+  @Override
+  public void activatePatient(Patient patient) {
+    write(() -> model.activatePatient(patient));
+  }
+
+  @Override
+  public void deactivatePatient(Patient patient, ClinicalStaff approver) {
+    write(() -> model.deactivatePatient(patient, approver));
+  }
+
+  @Override
+  public void activateStaff(Staff staff) {
+    write(() -> model.activateStaff(staff));
+  }
+
+  @Override
+  public void deactivateStaff(Staff staff) {
+    write(() -> model.deactivateStaff(staff));
+  }
+
+  @Override
+  public List<Patient> getAllPatients() {
+    return read(model::getAllPatients);
+  }
+
+  @Override
+  public List<Staff> getAllStaff() {
+    return read(model::getAllStaff);
+  }
+
+  @Override
+  public String getSeatingChart() {
+    return model.getSnapshot().getSeatingChart();
+  }
+
+  @Override
+  public void assignPatientToRoom(Patient patient, Room room) {
+    write(() -> model.assignPatientToRoom(patient, room));
+  }
+
+  @Override
+  public void assignClinicalStaffToPatient(ClinicalStaff staff, Patient patient) {
+    write(() -> model.assignClinicalStaffToPatient(staff, patient));
+  }
+
+  @Override
+  public Staff findStaffByName(String firstName, String lastName) {
+    return read(() -> model.findStaffByName(firstName, lastName));
+  }
+
+  @Override
+  public Patient findPatientByName(String firstName, String lastName) {
+    return read(() -> model.findPatientByName(firstName, lastName));
+  }
+
+  @Override
+  public Set<ClinicalStaff> getClinicalStaffAssignedToPatient(Patient patient) {
+    return read(() -> model.getClinicalStaffAssignedToPatient(patient));
+  }
+
+  @Override
+  public InterfaceVisitRecord addVisitRecord(Patient patient, LocalDateTime visitTime,
+      String chiefComplaint, double bodyTemperature) {
+    return write(() -> model.addVisitRecord(patient, visitTime, chiefComplaint,
+        bodyTemperature));
+  }
+
+  @Override
+  public Map<String, Integer> getComplaintCounts() {
+    return read(model::getComplaintCounts);
+  }
+
+  @Override
+  public Map<YearMonth, Map<String, Integer>> getComplaintCountsByMonth() {
+    return read(model::getComplaintCountsByMonth);
+  }
+
+  @Override
+  public ClinicalStaff getDeactivationApprover(Patient patient) {
+    return read(() -> model.getDeactivationApprover(patient));
+  }
+
+  @Override
+  public List<ClinicalStaff> listActiveClinicalStaff() {
+    return read(model::listActiveClinicalStaff);
+  }
+
+  @Override
+  public List<Patient> listInactivePatients() {
+    return model.getSnapshot().listInactivePatients();
+  }
+
+  @Override
+  public Map<Patient, Long> patientVisitSummaryPastYear() {
+    return model.getSnapshot().patientVisitSummaryPastYear();
+  }
+
+  @Override
+  public void unassignClinicalStaff(ClinicalStaff staff) {
+    write(() -> model.unassignClinicalStaff(staff));
+  }
+
+  @Override
+  public void unassignClinicalStaffFromPatient(ClinicalStaff staff, Patient patient) {
+    write(() -> model.unassignClinicalStaffFromPatient(staff, patient));
+  }
+
+  @Override
+  public Map<Staff, Integer> listStaffPatientCounts() {
+    return read(model::listStaffPatientCounts);
+  }
+
+  @Override
+  public Map<ClinicalStaff, List<Patient>> listActiveStaffWithPatients() {
+    return read(model::listActiveStaffWithPatients);
+  }
+
+  @Override
+  public ClinicSnapshot getSnapshot() {
+    return model.getSnapshot(); // Snapshots are immutable, no lock needed.
+  }
+
+  @Override
+  public void exportFloorPlan(String path) throws IOException {
+    model.exportFloorPlan(path); // Exports the immutable snapshot, no lock needed.
+  }
+
+  @Override
+  public void shutdown() {
+    model.shutdown(); // Only stops threads, so no lock is needed.
+  }
+
+  @Override
+  public void notifyViewUpdate() {
+    model.notifyViewUpdate(); // Calls out to the view, never hold the lock here.
+  }
+
+  @Override
+  public void beginBulkLoad() {
+    lock.writeLock().lock();
+    try {
+      model.beginBulkLoad();
+    } catch (RuntimeException e) {
+      lock.writeLock().unlock();
+      throw e;
+    }
+  }
+
+  @Override
+  public void commitBulkLoad() {
+    if (!lock.isWriteLockedByCurrentThread()) {
+      throw new IllegalStateException("No bulk load in progress on this thread.");
+    }
+    try {
+      model.commitBulkLoad();
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public LoadReport loadClinicData(String filePath) {
+    return write(() -> model.loadClinicData(filePath));
+  }
+
+  @Override
+  public LoadReport loadClinicData(String filePath, String quarantinePath) {
+    return write(() -> model.loadClinicData(filePath, quarantinePath));
+  }
+
+  @Override
+  public void clearRecords() {
+    write(model::clearRecords);
+  }
+}
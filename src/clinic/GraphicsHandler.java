@@ -1,86 +1,102 @@
 package clinic;
 
 import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
-import java.awt.image.BufferedImage;
-import java.io.File;
-import java.io.IOException;
+import java.awt.Rectangle;
 import java.util.List;
-import javax.imageio.ImageIO;
 
 /**
  * Setting up our graphics handler in order to visualize the clinic.
  * Will draw the room, and populate it with staff and patients.
+ * The GraphicsPanel and the TileRenderer both draw rooms through it,
+ * so the screen and the PNG export look the same.
  */
 public class GraphicsHandler {
-  private BufferedImage image;
-  private Graphics graphics;
-  private final int width;
-  private final int height;
-  
   /**
-   * Sets up our base blank canvas.
-   * @param width in pixels.
-   * @param height in pixels.
+   * Font room text is drawn with.
    */
-  public GraphicsHandler(int width, int height) {
-    this.width = width;
-    this.height = height;
-    initializeGraphics();
-  }
-  
-  /**
-   * Sets up the white blank space.
-   */
-  public void initializeGraphics() {
-    image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-    graphics = image.getGraphics();
-    graphics.setColor(Color.WHITE);
-    graphics.fillRect(0, 0, width, height);
+  static final Font FONT = new Font("Arial", Font.PLAIN, 12);
+
+  private GraphicsHandler() {
   }
-  
+
   /**
-   * Draws our room as we update it.
-   * @param x size in pixels.
-   * @param y size in pixels
-   * @param width size in pixels.
-   * @param height size in pixels.
+   * Draws a room into a rectangle of the graphics context, text is
+   * drawn at its normal size whatever the size of the rectangle.
+   * @param g The graphics context to draw on.
+   * @param x X coord to draw at.
+   * @param y Y coord to draw at.
+   * @param width Width to draw.
+   * @param height Height to draw.
    * @param roomName Name of the room.
    * @param isOccupied Occupied or not.
    * @param patientNames Patient inside name.
    * @param staffNames Staff inside name.
+   * @param detail One of the RoomGraphics DETAIL constants.
    */
-  public void drawRoom(int x, int y, int width, int height, String roomName, boolean isOccupied,
-      List<String> patientNames, List<String> staffNames) {
-    graphics.setColor(isOccupied ? Color.RED : Color.GREEN);
-    graphics.fillRect(x, y, width, height);
-    graphics.setColor(Color.BLACK);
-    graphics.drawRect(x, y, width, height);
-    graphics.drawString(roomName + (isOccupied ? " - Occupied" : " - Empty"), x + 5, y + 20);
-    
-    int ty = y + 35;
+  static void paintRoom(Graphics g, int x, int y, int width, int height, String roomName,
+      boolean isOccupied, List<String> patientNames, List<String> staffNames, int detail) {
+    g.setColor(isOccupied ? Color.RED : Color.GREEN); // Red for occupied, green for empty
+    g.fillRect(x, y, width, height);
+    if (detail == RoomGraphics.DETAIL_BLOCK) {
+      return;
+    }
+
+    g.setColor(Color.BLACK);
+    g.drawRect(x, y, width, height);
+
+    g.setFont(FONT);
+    g.drawString(roomName, x + 5, y + 15); // Room name
+    if (detail == RoomGraphics.DETAIL_NAME) {
+      return;
+    }
+
+    int ty = y + 30;
     for (String name : patientNames) {
-      graphics.drawString("Patient: " + name, x + 5, ty);
+      g.drawString("Patient: " + name, x + 5, ty);
       ty += 15;
     }
-    
+
     for (String name : staffNames) {
-      graphics.drawString("Staff: " + name, x + 5, ty);
+      g.drawString("Staff: " + name, x + 5, ty);
       ty += 15;
     }
   }
-  
+
   /**
-   * Saves the image we created.
-   * @param path File path to store image.
+   * Gets the area paintRoom covers when drawing into the given rectangle.
+   * @param metrics Metrics of FONT.
+   * @param x X coord to draw at.
+   * @param y Y coord to draw at.
+   * @param width Width to draw.
+   * @param height Height to draw.
+   * @param roomName Name of the room.
+   * @param patientNames Patient inside name.
+   * @param staffNames Staff inside name.
+   * @param detail One of the RoomGraphics DETAIL constants.
+   * @return Covered area, text included.
    */
-  public void saveImage(String path) {
-    try {
-      File outputFile = new File(path);
-      ImageIO.write(image, "png", outputFile);
-      
-    } catch (IOException e) {
-      System.out.println("Error saving image: " + e.getMessage());
+  static Rectangle roomBounds(FontMetrics metrics, int x, int y, int width, int height,
+      String roomName, List<String> patientNames, List<String> staffNames, int detail) {
+    Rectangle bounds = new Rectangle(x, y, width + 1, height + 1); // The border is one wider.
+    if (detail == RoomGraphics.DETAIL_BLOCK) {
+      return bounds;
+    }
+    int textWidth = metrics.stringWidth(roomName);
+    int lines = 0;
+    if (detail == RoomGraphics.DETAIL_FULL) {
+      for (String name : patientNames) {
+        textWidth = Math.max(textWidth, metrics.stringWidth("Patient: " + name));
+      }
+      for (String name : staffNames) {
+        textWidth = Math.max(textWidth, metrics.stringWidth("Staff: " + name));
+      }
+      lines = patientNames.size() + staffNames.size();
     }
+    bounds.add(new Rectangle(x + 5, y + 15 - metrics.getAscent(), textWidth,
+        15 * lines + metrics.getAscent() + metrics.getDescent()));
+    return bounds;
   }
 }
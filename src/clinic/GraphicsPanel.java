@@ -3,63 +3,351 @@ package clinic;
 
 import java.awt.Color;
 import java.awt.Dimension;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import javax.swing.JPanel;
 
 /**
  * Creating the graphics panel with which display GUI.
+ * The floor plan is drawn straight from the rooms at the current zoom,
+ * dragging pans it and the mouse wheel zooms around the pointer. Only
+ * rooms overlapping the area being painted are drawn, and names are left
+ * out when zoomed too far out to read them. When a newer snapshot is
+ * shown, only the areas of the rooms that changed are repainted.
+ *
+ * <p>What the panel shows is kept in an image the size of the panel, so
+ * repaints that change nothing, such as a dialog closing over the panel,
+ * only copy the image. Changed rooms are redrawn into it, panning shifts
+ * it and draws the uncovered strips, resizing or zooming draws it anew.
  */
 public class GraphicsPanel extends JPanel {
+  /**
+   * Smallest zoom factor.
+   */
+  public static final double MIN_ZOOM = 0.01;
+  /**
+   * Largest zoom factor.
+   */
+  public static final double MAX_ZOOM = 20;
+  /**
+   * Below this zoom only the room names are drawn.
+   */
+  public static final double FULL_DETAIL_ZOOM = 0.75;
+  /**
+   * Below this zoom rooms are drawn as plain blocks.
+   */
+  public static final double NAME_DETAIL_ZOOM = 0.4;
+
   private static final long serialVersionUID = 1L;
+  private static final double WHEEL_STEP = 1.2;
+
+  // Room graphics by position, and their positions indexed by area.
   private final List<RoomGraphics> rooms;
-  
+  private final transient SpatialIndex<Integer> roomIndex;
+  private long shownVersion = -1;
+  // Furthest any room is drawn right or down of its corner, in pixels, by detail level.
+  // Text keeps its size at any zoom, so this holds however small the room is drawn.
+  private final int[] reach = new int[RoomGraphics.DETAIL_FULL + 1];
+  // What the panel shows, and the parts of it still to be redrawn.
+  private transient BufferedImage view;
+  private boolean viewStale = true;
+  private final List<Rectangle> staleRegions = new ArrayList<>();
+  private double zoom = 1;
+  private double panX;
+  private double panY;
+
   /**
    * Creating our graphics panel.
    */
   public GraphicsPanel() {
     this.rooms = new ArrayList<>();
+    this.roomIndex = new SpatialIndex<>();
     setPreferredSize(new Dimension(800, 600)); // Default size
     setBackground(Color.WHITE); // Background color
+    Navigation navigation = new Navigation();
+    addMouseListener(navigation);
+    addMouseMotionListener(navigation);
+    addMouseWheelListener(navigation);
   }
-  
+
+  /**
+   * Shows the rooms of a snapshot, unless that version is already shown.
+   * Following an earlier snapshot of the same model, only the rooms that
+   * changed are replaced and repainted.
+   * @param snapshot Snapshot to show.
+   */
+  public void showSnapshot(ClinicSnapshot snapshot) {
+    if (snapshot.getVersion() == shownVersion) {
+      return;
+    }
+    List<ClinicSnapshot.RoomState> states = snapshot.getRoomStates();
+    List<Integer> changed = shownVersion < 0 ? null
+        : snapshot.changedRoomsSince(shownVersion);
+    if (changed == null) {
+      clearRooms();
+      for (ClinicSnapshot.RoomState state : states) {
+        add(RoomGraphics.of(state));
+      }
+    } else {
+      for (int index : changed) {
+        RoomGraphics updated = RoomGraphics.of(states.get(index));
+        if (index < rooms.size()) {
+          redrawLater(toPanel(rooms.get(index))); // Erase what was drawn before.
+          rooms.set(index, updated);
+          trackReach(updated);
+        } else {
+          add(updated);
+        }
+        redrawLater(toPanel(updated));
+      }
+    }
+    shownVersion = snapshot.getVersion();
+  }
+
   /**
    * Adds a room to the graphical layout.
-   * 
+   *
    * @param room The room's graphical data.
    */
   public void addRoom(RoomGraphics room) {
-    rooms.add(room);
-    repaint();
+    add(room);
+    shownVersion = -1;
+    redrawAllLater();
   }
-  
+
   /**
    * Clears all rooms from the layout.
    */
   public void clearRooms() {
     rooms.clear();
-    repaint();
+    roomIndex.clear();
+    Arrays.fill(reach, 0);
+    shownVersion = -1;
+    redrawAllLater();
   }
-  
-  @Override
-  protected void paintComponent(Graphics g) {
-    super.paintComponent(g);
-    // Draw each room
-    for (RoomGraphics room : rooms) {
-      room.draw(g);
-    }
-  }
-  
+
   /**
    * Updating rooms for graphic display.
    * @param updatedRooms Updated rooms.
    */
   public void updateRooms(List<RoomGraphics> updatedRooms) {
     clearRooms();
-    rooms.addAll(updatedRooms);
+    for (RoomGraphics room : updatedRooms) {
+      add(room);
+    }
+    redrawAllLater();
+
+  }
+
+  private void add(RoomGraphics room) {
+    roomIndex.add(rooms.size(), room.getX(), room.getY(), room.getX() + room.getWidth(),
+        room.getY() + room.getHeight());
+    rooms.add(room);
+    trackReach(room);
+  }
+
+  // Text does not scale with the room, so measure it from the corner of a one pixel room.
+  private void trackReach(RoomGraphics room) {
+    FontMetrics metrics = getFontMetrics(GraphicsHandler.FONT);
+    for (int detail = 0; detail < reach.length; detail++) {
+      Rectangle drawn = room.getDrawnBounds(0, 0, 1, 1, detail, metrics);
+      reach[detail] = Math.max(reach[detail], Math.max(drawn.x + drawn.width,
+          drawn.y + drawn.height));
+    }
+  }
+
+  // Area of the panel a room covers at the current zoom and pan, text included.
+  private Rectangle toPanel(RoomGraphics room) {
+    Rectangle r = toPanelRect(room);
+    FontMetrics metrics = getFontMetrics(GraphicsHandler.FONT);
+    return room.getDrawnBounds(r.x, r.y, r.width, r.height, getDetail(), metrics);
+  }
+
+  // Rectangle of a room at the current zoom and pan, at least one pixel across.
+  private Rectangle toPanelRect(RoomGraphics room) {
+    int sx = toPanel(room.getX(), panX);
+    int sy = toPanel(room.getY(), panY);
+    int sw = Math.max(1, toPanel(room.getX() + room.getWidth(), panX) - sx);
+    int sh = Math.max(1, toPanel(room.getY() + room.getHeight(), panY) - sy);
+    return new Rectangle(sx, sy, sw, sh);
+  }
+
+  /**
+   * Gets the zoom factor, panel pixels per floor plan unit.
+   * @return Zoom factor.
+   */
+  public double getZoom() {
+    return zoom;
+  }
+
+  /**
+   * Zooms while keeping the floor plan point under a panel point in place.
+   * @param newZoom Zoom factor, kept between MIN_ZOOM and MAX_ZOOM.
+   * @param anchorX X coord in the panel.
+   * @param anchorY Y coord in the panel.
+   */
+  public void zoomTo(double newZoom, int anchorX, int anchorY) {
+    double clamped = Math.max(MIN_ZOOM, Math.min(MAX_ZOOM, newZoom));
+    panX = anchorX - (anchorX - panX) * clamped / zoom;
+    panY = anchorY - (anchorY - panY) * clamped / zoom;
+    zoom = clamped;
+    redrawAllLater();
+  }
+
+  /**
+   * Moves the floor plan across the panel.
+   * @param dx Pixels to move right.
+   * @param dy Pixels to move down.
+   */
+  public void panBy(int dx, int dy) {
+    panX += dx;
+    panY += dy;
+    if (viewStale || view == null || Math.abs(dx) >= view.getWidth()
+        || Math.abs(dy) >= view.getHeight()) {
+      redrawAllLater();
+      return;
+    }
+    // Move what is already drawn, only the strips it uncovers need drawing.
+    int width = view.getWidth();
+    int height = view.getHeight();
+    Graphics g = view.getGraphics();
+    g.copyArea(0, 0, width, height, dx, dy);
+    g.dispose();
+    for (Rectangle region : staleRegions) {
+      region.translate(dx, dy);
+    }
+    if (dx != 0) {
+      staleRegions.add(new Rectangle(dx > 0 ? 0 : width + dx, 0, Math.abs(dx), height));
+    }
+    if (dy != 0) {
+      staleRegions.add(new Rectangle(0, dy > 0 ? 0 : height + dy, width, Math.abs(dy)));
+    }
     repaint();
-    
   }
-  
+
+  /**
+   * Goes back to the original zoom and position.
+   */
+  public void resetView() {
+    zoom = 1;
+    panX = 0;
+    panY = 0;
+    redrawAllLater();
+  }
+
+  /**
+   * Converts a panel point to floor plan coordinates.
+   * @param panelPoint Point in the panel.
+   * @return Point on the floor plan.
+   */
+  public Point toWorld(Point panelPoint) {
+    return new Point((int) Math.floor((panelPoint.x - panX) / zoom),
+        (int) Math.floor((panelPoint.y - panY) / zoom));
+  }
+
+  /**
+   * Gets the level of detail rooms are drawn with at the current zoom.
+   * @return One of the RoomGraphics DETAIL constants.
+   */
+  public int getDetail() {
+    if (zoom < NAME_DETAIL_ZOOM) {
+      return RoomGraphics.DETAIL_BLOCK;
+    }
+    return zoom < FULL_DETAIL_ZOOM ? RoomGraphics.DETAIL_NAME : RoomGraphics.DETAIL_FULL;
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    int width = Math.max(1, getWidth());
+    int height = Math.max(1, getHeight());
+    if (view == null || view.getWidth() != width || view.getHeight() != height) {
+      view = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      viewStale = true;
+    }
+    if (viewStale) {
+      staleRegions.clear();
+      redraw(new Rectangle(0, 0, width, height));
+      viewStale = false;
+    }
+    for (Rectangle region : staleRegions) {
+      redraw(region.intersection(new Rectangle(0, 0, width, height)));
+    }
+    staleRegions.clear();
+    g.drawImage(view, 0, 0, null);
+  }
+
+  // Draws part of the view again from the rooms.
+  private void redraw(Rectangle area) {
+    if (area.isEmpty()) {
+      return;
+    }
+    Graphics g = view.getGraphics();
+    g.setClip(area.x, area.y, area.width, area.height);
+    g.setColor(getBackground());
+    g.fillRect(area.x, area.y, area.width, area.height);
+    int detail = getDetail();
+    int margin = reach[detail];
+    // Text runs right and down from a room's corner, so look further left and up.
+    Point from = toWorld(new Point(area.x - margin, area.y - margin));
+    Point to = toWorld(new Point(area.x + area.width, area.y + area.height));
+    // Draw each visible room
+    for (int index : roomIndex.findIn(from.x, from.y, to.x + 1, to.y + 1)) {
+      RoomGraphics room = rooms.get(index);
+      Rectangle r = toPanelRect(room);
+      room.draw(g, r.x, r.y, r.width, r.height, detail);
+    }
+    g.dispose();
+  }
+
+  private void redrawLater(Rectangle area) {
+    if (!viewStale) {
+      staleRegions.add(area);
+    }
+    repaint(area);
+  }
+
+  private void redrawAllLater() {
+    viewStale = true;
+    staleRegions.clear();
+    repaint();
+  }
+
+  private int toPanel(int coordinate, double pan) {
+    return (int) Math.floor(coordinate * zoom + pan);
+  }
+
+  /**
+   * Pans on drag and zooms on the mouse wheel.
+   */
+  private final class Navigation extends MouseAdapter {
+    private Point last;
+
+    @Override
+    public void mousePressed(MouseEvent e) {
+      last = e.getPoint();
+    }
+
+    @Override
+    public void mouseDragged(MouseEvent e) {
+      if (last != null) {
+        panBy(e.getX() - last.x, e.getY() - last.y);
+      }
+      last = e.getPoint();
+    }
+
+    @Override
+    public void mouseWheelMoved(MouseWheelEvent e) {
+      zoomTo(zoom * Math.pow(WHEEL_STEP, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+    }
+  }
+
 }
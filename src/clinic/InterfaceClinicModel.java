@@ -1,5 +1,8 @@
 package clinic;
 
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,6 +38,20 @@ public interface InterfaceClinicModel {
    */
   Room getRoom(int index);
   
+  /**
+   * Finds a room by its name, ignoring case.
+   * @param roomName Name of the room.
+   * @return First room added with that name, or null.
+   */
+  Room findRoomByName(String roomName);
+  
+  /**
+   * Finds all rooms of a type, ignoring case.
+   * @param roomType Type of room, e.g. exam or waiting.
+   * @return Matching rooms in the order they were added.
+   */
+  List<Room> findRoomsByType(String roomType);
+  
   /**
    * Returns who is inside each room.
    * @param roomIndex Info needed from this room.
@@ -48,6 +65,33 @@ public interface InterfaceClinicModel {
    */
   List<Room> getAllRooms();
   
+  /**
+   * Finds the room at a point of the floor plan. Where rooms overlap the
+   * one added first is found.
+   * @param x X coordinate.
+   * @param y Y coordinate.
+   * @return Room containing the point, or null if there is none.
+   */
+  Room findRoomAt(int x, int y);
+  
+  /**
+   * Finds the rooms overlapping an area of the floor plan.
+   * @param x1 Left edge of the area.
+   * @param y1 Top edge of the area.
+   * @param x2 Right edge of the area.
+   * @param y2 Bottom edge of the area.
+   * @return Overlapping rooms in the order they were added.
+   */
+  List<Room> findRoomsIn(int x1, int y1, int x2, int y2);
+  
+  /**
+   * Finds the room closest to a point of the floor plan.
+   * @param x X coordinate.
+   * @param y Y coordinate.
+   * @return Closest room, or null if there are no rooms.
+   */
+  Room findNearestRoom(int x, int y);
+  
   /**
    * Activates a patient making their visit active.
    * @param patient New active patient.
@@ -128,6 +172,29 @@ public interface InterfaceClinicModel {
    */
   Set<ClinicalStaff> getClinicalStaffAssignedToPatient(Patient patient);
   
+  /**
+   * Records a visit for a patient, the chief complaint is counted.
+   * @param patient Patient who visited.
+   * @param visitTime Time of the visit.
+   * @param chiefComplaint Chief complaint of the visit.
+   * @param bodyTemperature Body temperature in C.
+   * @return The stored visit record.
+   */
+  InterfaceVisitRecord addVisitRecord(Patient patient, LocalDateTime visitTime, 
+      String chiefComplaint, double bodyTemperature);
+  
+  /**
+   * Counts how often each chief complaint was recorded.
+   * @return Visit count per complaint.
+   */
+  Map<String, Integer> getComplaintCounts();
+  
+  /**
+   * Counts how often each chief complaint was recorded per month.
+   * @return Visit count per complaint, grouped by month.
+   */
+  Map<YearMonth, Map<String, Integer>> getComplaintCountsByMonth();
+  
   /**
    * Finds the deactivation approver for sending patient home.
    * @param patient Patient sent home.
@@ -178,20 +245,65 @@ public interface InterfaceClinicModel {
    */
   Map<ClinicalStaff, List<Patient>> listActiveStaffWithPatients();
   
+  /**
+   * Gets the latest published snapshot of the clinic. Snapshots never
+   * change, so they can be read from any thread without locking.
+   * @return Latest snapshot.
+   */
+  ClinicSnapshot getSnapshot();
+  
+  /**
+   * Exports the whole floor plan as a PNG, however large the layout is.
+   * This can take seconds, so call it off the event thread. A file left
+   * partly written by a failed export is deleted.
+   * @param path File path to store image.
+   * @throws IOException If the file cannot be written.
+   */
+  void exportFloorPlan(String path) throws IOException;
+  
   /**
    * Notify observers of the model to refresh the view.
    */
   void notifyViewUpdate();
   
   /**
-   * Loading our clinic data into the program.
+   * Starts a bulk load, rendering and view notifications are held back
+   * until the matching commit. Bulk loads may be nested.
+   */
+  void beginBulkLoad();
+  
+  /**
+   * Ends a bulk load and publishes all held back changes as one update.
+   * @throws IllegalStateException If no bulk load is in progress.
+   */
+  void commitBulkLoad();
+  
+  /**
+   * Loading our clinic data into the program. Rows that cannot be parsed
+   * or applied are skipped and described in the report.
+   * @param filePath Path of the clinic file data.
+   * @return Report of the load.
+   */
+  LoadReport loadClinicData(String filePath);
+
+  /**
+   * Loading our clinic data into the program, writing rejected rows to a
+   * quarantine file so they can be fixed and loaded again.
    * @param filePath Path of the clinic file data.
+   * @param quarantinePath Path of the quarantine file, or null for none.
+   * @return Report of the load.
    */
-  void loadClinicData(String filePath);
+  LoadReport loadClinicData(String filePath, String quarantinePath);
   
   /**
    * Clears the saved data.
    */
   void clearRecords();
   
+  /**
+   * Stops the model's background threads, such as the render thread.
+   * Changes made afterwards are still applied but no longer rendered.
+   */
+  void shutdown();
+  
 }
@@ -0,0 +1,172 @@
+package clinic;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of loading a clinic data file: how many lines were read and
+ * applied, which rows were rejected and why, and how long it took.
+ */
+public final class LoadReport {
+  /**
+   * Most rejected rows described in a report, the rest are only counted.
+   */
+  public static final int MAX_DIAGNOSTICS = 100;
+
+  private final long lineCount;
+  private final long appliedCount;
+  private final long rejectedCount;
+  private final List<Diagnostic> diagnostics;
+  private final long elapsedNanos;
+  private final Path quarantineFile;
+  private final String failure;
+
+  LoadReport(long lineCount, long appliedCount, long rejectedCount,
+      List<Diagnostic> diagnostics, long elapsedNanos, Path quarantineFile, String failure) {
+    this.lineCount = lineCount;
+    this.appliedCount = appliedCount;
+    this.rejectedCount = rejectedCount;
+    this.diagnostics = Collections.unmodifiableList(new ArrayList<>(diagnostics));
+    this.elapsedNanos = elapsedNanos;
+    this.quarantineFile = quarantineFile;
+    this.failure = failure;
+  }
+
+  /**
+   * Creates a report for a load without rejected rows.
+   * @param lineCount Number of lines read.
+   * @param appliedCount Number of directives applied.
+   * @param elapsedNanos Time the load took.
+   * @return The report.
+   */
+  public static LoadReport clean(long lineCount, long appliedCount, long elapsedNanos) {
+    return new LoadReport(lineCount, appliedCount, 0, new ArrayList<>(), elapsedNanos, null,
+        null);
+  }
+
+  /**
+   * Gets the number of lines read, including blank lines and comments.
+   * @return Number of lines.
+   */
+  public long getLineCount() {
+    return lineCount;
+  }
+
+  /**
+   * Gets the number of directives applied to the model.
+   * @return Number of directives.
+   */
+  public long getAppliedCount() {
+    return appliedCount;
+  }
+
+  /**
+   * Gets the number of rows skipped because they could not be parsed or applied.
+   * @return Number of rejected rows.
+   */
+  public long getRejectedCount() {
+    return rejectedCount;
+  }
+
+  /**
+   * Gets the rejected rows in the order they were rejected, up to
+   * {@link #MAX_DIAGNOSTICS} of them.
+   * @return Diagnostics of rejected rows.
+   */
+  public List<Diagnostic> getDiagnostics() {
+    return diagnostics;
+  }
+
+  /**
+   * Gets how long the load took.
+   * @return Elapsed time in nanoseconds.
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * Gets the file rejected rows were written to.
+   * @return Quarantine file, or null if none was asked for.
+   */
+  public Path getQuarantineFile() {
+    return quarantineFile;
+  }
+
+  /**
+   * Gets why the load stopped before the end of the file.
+   * @return Reason, or null if the whole file was read.
+   */
+  public String getFailure() {
+    return failure;
+  }
+
+  /**
+   * Tells whether the whole file was read without rejecting any row.
+   * @return True if the load was clean.
+   */
+  public boolean isClean() {
+    return rejectedCount == 0 && failure == null;
+  }
+
+  @Override
+  public String toString() {
+    double seconds = Math.max(elapsedNanos, 1) / 1_000_000_000.0;
+    String summary = String.format("Loaded %d lines in %.1f ms (%.0f lines/sec), "
+        + "%d directives applied, %d rows rejected", lineCount, elapsedNanos / 1_000_000.0,
+        lineCount / seconds, appliedCount, rejectedCount);
+    return failure == null ? summary : summary + ", stopped early: " + failure;
+  }
+
+  /**
+   * Why one row of a clinic data file was rejected.
+   */
+  public static final class Diagnostic {
+    private final long lineNumber;
+    private final String directive;
+    private final String reason;
+
+    /**
+     * Creates a diagnostic.
+     * @param lineNumber Number of the line in the file, starting at 1.
+     * @param directive Directive the line starts with.
+     * @param reason Why the line was rejected.
+     */
+    public Diagnostic(long lineNumber, String directive, String reason) {
+      this.lineNumber = lineNumber;
+      this.directive = directive;
+      this.reason = reason;
+    }
+
+    /**
+     * Gets the number of the rejected line.
+     * @return Line number, starting at 1.
+     */
+    public long getLineNumber() {
+      return lineNumber;
+    }
+
+    /**
+     * Gets the directive the rejected line starts with.
+     * @return Directive as written in the file.
+     */
+    public String getDirective() {
+      return directive;
+    }
+
+    /**
+     * Gets why the line was rejected.
+     * @return Reason.
+     */
+    public String getReason() {
+      return reason;
+    }
+
+    @Override
+    public String toString() {
+      return "Line " + lineNumber + " (" + directive + "): " + reason;
+    }
+  }
+}
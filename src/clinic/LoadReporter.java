@@ -0,0 +1,173 @@
+package clinic;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Passes directives on to another handler while counting them, and keeps
+ * rejected rows instead of stopping the load. Rejected rows can also be
+ * written to a quarantine file, each after a comment with its line number
+ * and reason, so the file can be fixed and loaded again.
+ */
+class LoadReporter implements ClinicDataHandler {
+  private final ClinicDataHandler target;
+  private final long firstLine;
+  private final List<LoadReport.Diagnostic> diagnostics = new ArrayList<>();
+  private long appliedCount;
+  private long rejectedCount;
+  private Path quarantineFile;
+  private BufferedWriter quarantine;
+
+  /**
+   * Creates a reporter in front of the given handler.
+   * @param target Handler the directives are passed on to.
+   */
+  LoadReporter(ClinicDataHandler target) {
+    this(target, 0);
+  }
+
+  /**
+   * Creates a reporter for a parse that starts partway through a file.
+   * @param target Handler the directives are passed on to.
+   * @param firstLine Number of lines before the part being parsed.
+   */
+  LoadReporter(ClinicDataHandler target, long firstLine) {
+    this.target = target;
+    this.firstLine = firstLine;
+  }
+
+  /**
+   * Starts writing rejected rows to a file, replacing what it held.
+   * @param file Quarantine file.
+   * @throws IOException If the file cannot be created.
+   */
+  void openQuarantine(Path file) throws IOException {
+    quarantine = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+    quarantineFile = file;
+  }
+
+  /**
+   * Finishes the quarantine file, if one was opened.
+   */
+  void closeQuarantine() {
+    if (quarantine == null) {
+      return;
+    }
+    try {
+      quarantine.close();
+    } catch (IOException e) {
+      System.err.println("Error writing quarantine file: " + e.getMessage());
+    }
+    quarantine = null;
+  }
+
+  /**
+   * Builds the report of the load.
+   * @param lineCount Number of lines read.
+   * @param elapsedNanos Time the load took.
+   * @param failure Why the load stopped early, or null.
+   * @return The report.
+   */
+  LoadReport finish(long lineCount, long elapsedNanos, String failure) {
+    return new LoadReport(lineCount, appliedCount, rejectedCount, diagnostics, elapsedNanos,
+        quarantineFile, failure);
+  }
+
+  @Override
+  public void line(long lineNumber) {
+    target.line(firstLine + lineNumber);
+  }
+
+  @Override
+  public void reject(long lineNumber, String line, RuntimeException error) {
+    lineNumber += firstLine;
+    rejectedCount++;
+    String reason = reason(error);
+    if (diagnostics.size() < LoadReport.MAX_DIAGNOSTICS) {
+      int comma = line.indexOf(',');
+      String directive = (comma < 0 ? line : line.substring(0, comma)).trim();
+      diagnostics.add(new LoadReport.Diagnostic(lineNumber, directive, reason));
+    }
+    if (quarantine != null) {
+      try {
+        quarantine.write("# Line " + lineNumber + ": " + reason);
+        quarantine.newLine();
+        quarantine.write(line);
+        quarantine.newLine();
+      } catch (IOException e) {
+        System.err.println("Error writing quarantine file: " + e.getMessage());
+        closeQuarantine();
+      }
+    }
+  }
+
+  private static String reason(RuntimeException error) {
+    if (error instanceof IndexOutOfBoundsException) {
+      return "Missing field (" + error.getMessage() + ")";
+    }
+    String message = error.getMessage();
+    return message == null ? error.getClass().getSimpleName() : message;
+  }
+
+  @Override
+  public void room(String roomName, String roomType, int x1, int y1, int x2, int y2) {
+    target.room(roomName, roomType, x1, y1, x2, y2);
+    appliedCount++;
+  }
+
+  @Override
+  public void staff(String firstName, String lastName, String role, String educationLevel,
+      String npi) {
+    target.staff(firstName, lastName, role, educationLevel, npi);
+    appliedCount++;
+  }
+
+  @Override
+  public void patient(String firstName, String lastName, String dob) {
+    target.patient(firstName, lastName, dob);
+    appliedCount++;
+  }
+
+  @Override
+  public void visit(LocalDateTime visitTime, String chiefComplaint, double temperature) {
+    target.visit(visitTime, chiefComplaint, temperature); // Part of the patient's row.
+  }
+
+  @Override
+  public void assign(String firstName, String lastName, String roomName) {
+    target.assign(firstName, lastName, roomName);
+    appliedCount++;
+  }
+
+  @Override
+  public void assignStaff(String patientFirstName, String patientLastName,
+      String staffFirstName, String staffLastName) {
+    target.assignStaff(patientFirstName, patientLastName, staffFirstName, staffLastName);
+    appliedCount++;
+  }
+
+  @Override
+  public void deactivateStaff(String firstName, String lastName) {
+    target.deactivateStaff(firstName, lastName);
+    appliedCount++;
+  }
+
+  @Override
+  public void sendHome(String patientFirstName, String patientLastName,
+      String staffFirstName, String staffLastName) {
+    target.sendHome(patientFirstName, patientLastName, staffFirstName, staffLastName);
+    appliedCount++;
+  }
+
+  // Thrown so the parser rejects the row with its line number and text.
+  @Override
+  public void unknown(String directive) {
+    throw new IllegalArgumentException("Unknown directive: " + directive);
+  }
+}
@@ -1,11 +1,22 @@
 package clinic;
 
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.swing.SwingUtilities;
 
 /**
  * Run the clinic application interactively on the console.
  */
 public class Main {
+  // Longest time the shutdown hook waits for the event thread to save the model.
+  private static final long SAVE_WAIT_MILLIS = 5000;
   
   /**
    * Constructor for our main.
@@ -16,11 +27,30 @@ public class Main {
     // Initialize the model
     ClinicModel model = new ClinicModel();
     
+    // Restore the last snapshot, then the changes logged since, and keep logging
+    Path snapshotPath = Paths.get(System.getProperty("clinic.snapshot", "clinic.snapshot"));
+    long generation = restoreSnapshot(model, snapshotPath);
+    WriteAheadLog log = openWriteAheadLog(model,
+        Paths.get(System.getProperty("clinic.wal", "clinic.wal")), snapshotPath, generation);
+    
+    // Apply lines appended to a clinic data feed while the program runs
+    String followPath = System.getProperty("clinic.follow");
+    if (followPath != null) {
+      try {
+        model.startFollowing(followPath, followPath + ".offset");
+      } catch (IOException e) {
+        System.err.println("Could not follow " + followPath + ": " + e.getMessage());
+      }
+    }
+    
     // Create the GUI view
     ClinicView view = new ClinicView(model);
     
     // Set the view in the model
     model.setView(view);
+    
+    // Stop the model and save a snapshot on the way out, see closeOnExit
+    closeOnExit(model, log, snapshotPath, view);
 
     // Create the controller
     ClinicGraphicalController controller = new ClinicGraphicalController(model, view);
@@ -31,4 +61,109 @@ public class Main {
       view.initialize(); // Initialize and display the GUI
     });
   }
+  
+  private static long restoreSnapshot(ClinicModel model, Path path) {
+    if (!Files.exists(path)) {
+      return 0;
+    }
+    try {
+      long start = System.nanoTime();
+      long generation = BinarySnapshot.read(path, model);
+      System.out.printf("Restored %s in %.1f ms%n", path, (System.nanoTime() - start) / 1e6);
+      return generation;
+    } catch (IOException e) {
+      model.clearRecords();
+      System.err.println("Could not restore " + path + ": " + e.getMessage());
+      return 0;
+    }
+  }
+  
+  private static WriteAheadLog openWriteAheadLog(ClinicModel model, Path path,
+      Path snapshotPath, long generation) {
+    try {
+      WriteAheadLog log = new WriteAheadLog(path);
+      if (log.getGeneration() > generation) {
+        // The snapshot this log continues from is missing, keep the log for recovery.
+        log.close();
+        System.err.println("Changes will not be saved, " + path 
+            + " does not match the snapshot " + snapshotPath);
+        return null;
+      }
+      model.setWriteAheadLog(log);
+      if (log.getGeneration() == generation) {
+        int replayed = log.replay(model);
+        System.out.println("Replayed " + replayed + " changes from " + path);
+      } else {
+        log.checkpoint(model, generation); // The snapshot already holds these changes.
+      }
+      return log;
+    } catch (IOException e) {
+      model.setWriteAheadLog(null);
+      System.err.println("Changes will not be saved, could not open " + path 
+          + ": " + e.getMessage());
+      return null;
+    }
+  }
+  
+  // The model is only changed on the event thread, so it is saved there once the feed stops.
+  // Closing the window saves before the frame exits, the shutdown hook covers other exits.
+  // If the event thread is busy or already exiting, the log is kept for replay instead.
+  private static void closeOnExit(ClinicModel model, WriteAheadLog log, Path snapshotPath,
+      ClinicView view) {
+    AtomicBoolean saved = new AtomicBoolean();
+    Runnable save = () -> {
+      if (saved.compareAndSet(false, true)) {
+        model.shutdown(); // Stops the feed and the render thread.
+        if (log != null) {
+          checkpoint(model, log, snapshotPath);
+        }
+      }
+    };
+    view.addWindowListener(new WindowAdapter() {
+      @Override
+      public void windowClosing(WindowEvent e) {
+        save.run();
+      }
+    });
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      if (saved.get()) {
+        return;
+      }
+      CountDownLatch done = new CountDownLatch(1);
+      SwingUtilities.invokeLater(() -> {
+        try {
+          save.run();
+        } finally {
+          done.countDown();
+        }
+      });
+      try {
+        if (!done.await(SAVE_WAIT_MILLIS, TimeUnit.MILLISECONDS) && log != null) {
+          log.sync();
+          System.err.println("Could not save " + snapshotPath 
+              + ", changes are kept in the write-ahead log.");
+        }
+      } catch (InterruptedException | IOException e) {
+        System.err.println("Error saving on exit: " + e.getMessage());
+      }
+    }));
+  }
+  
+  // Saves the model to a new snapshot so the next start does not replay the whole log.
+  private static void checkpoint(ClinicModel model, WriteAheadLog log, Path snapshotPath) {
+    try {
+      long next = log.getGeneration() + 1;
+      log.sync();
+      BinarySnapshot.write(model, snapshotPath, next);
+      log.checkpoint(model, next); // Only once the new snapshot is durable.
+    } catch (IOException e) {
+      System.err.println("Could not save " + snapshotPath + ": " + e.getMessage());
+    } finally {
+      try {
+        log.close();
+      } catch (IOException e) {
+        System.err.println("Error closing the write-ahead log: " + e.getMessage());
+      }
+    }
+  }
 }
\ No newline at end of file
@@ -0,0 +1,452 @@
+package clinic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Clinic data parser that maps the file into memory and scans fields
+ * straight out of the mapped bytes. Lines are never turned into strings
+ * and no regular expressions are used: directives are matched byte by
+ * byte, numbers and visit times are parsed in place, and only the names
+ * and text handed to the handler are decoded. Gives the same results as
+ * {@link TextClinicDataParser}. A parser is not thread safe, use one per
+ * thread.
+ */
+public class MappedClinicDataParser implements ClinicDataParser {
+  /**
+   * Default largest part of the file mapped at once.
+   */
+  public static final long DEFAULT_WINDOW_SIZE = 1L << 30;
+
+  private static final byte[] ROOM = ascii("room");
+  private static final byte[] STAFF = ascii("staff");
+  private static final byte[] PATIENT = ascii("patient");
+  private static final byte[] ASSIGN = ascii("assign");
+  private static final byte[] ASSIGN_STAFF = ascii("assignstaff");
+  private static final byte[] DEACTIVATE_STAFF = ascii("deactivatestaff");
+  private static final byte[] SEND_HOME = ascii("sendhome");
+  private static final double[] POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+
+  private final long windowSize;
+  private ByteBuffer buffer;
+  private long lineCount;
+  private long lineOffset;
+  private int[] fieldStarts = new int[8];
+  private int[] fieldEnds = new int[8];
+  private int fieldCount;
+  private int[] tokenStarts = new int[4];
+  private int[] tokenEnds = new int[4];
+  private int tokenCount;
+  private byte[] scratch = new byte[64];
+
+  /**
+   * Creates a parser with the default window size.
+   */
+  public MappedClinicDataParser() {
+    this(DEFAULT_WINDOW_SIZE);
+  }
+
+  /**
+   * Creates a parser that maps files in windows of the given size.
+   * @param windowSize Largest part of the file mapped at once, must hold the longest line.
+   */
+  public MappedClinicDataParser(long windowSize) {
+    if (windowSize <= 0 || windowSize > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("The window size must be between 1 and 2GB.");
+    }
+    this.windowSize = windowSize;
+  }
+
+  @Override
+  public long parse(Path file, ClinicDataHandler handler) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return parse(channel, 0, channel.size(), handler);
+    }
+  }
+
+  /**
+   * Parses the lines between two offsets of an open file. The range has to
+   * start at the beginning of a line and end after a line break or at the
+   * end of the file.
+   * @param channel File to read from, only used for mapping.
+   * @param from Offset of the first byte to parse.
+   * @param to Offset just past the last byte to parse.
+   * @param handler Handler receiving the directives.
+   * @return Number of lines read.
+   * @throws IOException If the range cannot be mapped or a line is longer than the window.
+   */
+  long parse(FileChannel channel, long from, long to, ClinicDataHandler handler)
+      throws IOException {
+    lineCount = 0;
+    try {
+      long position = from;
+      while (position < to) {
+        long length = Math.min(windowSize, to - position);
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        boolean lastWindow = position + length == to;
+        int consumed = 0;
+        int limit = (int) length;
+        for (int i = 0; i < limit; i++) {
+          if (buffer.get(i) == '\n') {
+            lineCount++;
+            lineOffset = position + consumed;
+            parseLineOrReject(consumed, i, handler);
+            consumed = i + 1;
+          }
+        }
+        if (lastWindow && consumed < limit) {
+          lineCount++; // Last line without a line break.
+          lineOffset = position + consumed;
+          parseLineOrReject(consumed, limit, handler);
+          consumed = limit;
+        }
+        if (consumed == 0) {
+          throw new IOException("Line " + (lineCount + 1) + " is longer than " + windowSize
+              + " bytes.");
+        }
+        position += consumed; // A line cut off by the window starts the next one.
+      }
+    } finally {
+      buffer = null;
+    }
+    return lineCount;
+  }
+
+  /**
+   * Gives the number of the line being parsed, counted from the start of
+   * the range. Meant to be called by the handler while it receives a line.
+   * @return Line number, starting at 1.
+   */
+  long getLineNumber() {
+    return lineCount;
+  }
+
+  /**
+   * Gives the offset in the file where the line being parsed starts.
+   * @return Offset of the first byte of the line.
+   */
+  long getLineOffset() {
+    return lineOffset;
+  }
+
+  private void parseLineOrReject(int start, int end, ClinicDataHandler handler) {
+    try {
+      parseLine(start, end, handler);
+    } catch (RuntimeException e) {
+      if (end > start && buffer.get(end - 1) == '\r') {
+        end--;
+      }
+      handler.reject(lineCount, decode(start, end), e);
+    }
+  }
+
+  private void parseLine(int start, int end, ClinicDataHandler handler) {
+    while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+      start++;
+    }
+    while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+      end--;
+    }
+    if (start == end || buffer.get(start) == '#') {
+      return;
+    }
+    splitFields(start, end);
+    if (fieldIs(0, ROOM)) {
+      // Room, name, type, x1, y1, x2, y2
+      handler.room(string(1), string(2), parseInt(3), parseInt(4), parseInt(5), parseInt(6));
+    } else if (fieldIs(0, STAFF)) {
+      // Staff, name, role, education, npi
+      String role = string(2);
+      String educationLevel = string(3);
+      String npi = fieldCount > 4 ? string(4) : null;
+      splitTokens(1, true);
+      handler.staff(token(0), tokenCount > 1 ? token(1) : "", role, educationLevel, npi);
+    } else if (fieldIs(0, PATIENT)) {
+      // Patient, name, dob, visitTime, complaint, temperature
+      String dob = trimmedString(2);
+      LocalDateTime visitTime = null;
+      String complaint = null;
+      double temperature = 0;
+      if (fieldCount > 3) {
+        // Read the whole line first, so a bad visit does not leave the patient half added.
+        visitTime = parseDateTime(3);
+        complaint = trimmedString(4);
+        temperature = parseDouble(5);
+      }
+      splitTokens(1, true);
+      handler.patient(token(0), tokenCount > 1 ? token(1) : "", dob);
+      if (visitTime != null) {
+        handler.visit(visitTime, complaint, temperature);
+      }
+    } else if (fieldIs(0, ASSIGN)) {
+      // Assign, patientName, roomName
+      String roomName = string(2);
+      splitTokens(1, false);
+      handler.assign(token(0), token(1), roomName);
+    } else if (fieldIs(0, ASSIGN_STAFF)) {
+      // AssignStaff, patientName, staffName
+      splitTokens(1, false);
+      String patientFirstName = token(0);
+      String patientLastName = token(1);
+      splitTokens(2, false);
+      handler.assignStaff(patientFirstName, patientLastName, token(0), token(1));
+    } else if (fieldIs(0, DEACTIVATE_STAFF)) {
+      // DeactivateStaff, staffName
+      splitTokens(1, false);
+      handler.deactivateStaff(token(0), token(1));
+    } else if (fieldIs(0, SEND_HOME)) {
+      // SendHome, patientName, approvingStaff
+      splitTokens(1, false);
+      String patientFirstName = token(0);
+      String patientLastName = token(1);
+      splitTokens(2, false);
+      handler.sendHome(patientFirstName, patientLastName, token(0), token(1));
+    } else {
+      handler.unknown(string(0));
+    }
+  }
+
+  // Splits at commas and drops the whitespace after each, like split(",\\s*").
+  private void splitFields(int start, int end) {
+    fieldCount = 0;
+    int fieldStart = start;
+    for (int i = start; i < end; i++) {
+      if (buffer.get(i) == ',') {
+        addField(fieldStart, i);
+        fieldStart = i + 1;
+        while (fieldStart < end && isSpace(buffer.get(fieldStart))) {
+          fieldStart++;
+        }
+        i = fieldStart - 1;
+      }
+    }
+    addField(fieldStart, end);
+    while (fieldCount > 0 && fieldStarts[fieldCount - 1] == fieldEnds[fieldCount - 1]) {
+      fieldCount--; // Trailing empty fields are dropped, as split does.
+    }
+  }
+
+  private void addField(int start, int end) {
+    if (fieldCount == fieldStarts.length) {
+      fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+      fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+    }
+    fieldStarts[fieldCount] = start;
+    fieldEnds[fieldCount++] = end;
+  }
+
+  // Splits a field into name parts, on runs of whitespace or on single spaces.
+  private void splitTokens(int field, boolean whitespaceRuns) {
+    checkField(field);
+    int end = fieldEnds[field];
+    tokenCount = 0;
+    int tokenStart = fieldStarts[field];
+    for (int i = tokenStart; i < end; i++) {
+      byte b = buffer.get(i);
+      if (whitespaceRuns ? isSpace(b) : b == ' ') {
+        addToken(tokenStart, i);
+        if (whitespaceRuns) {
+          while (i + 1 < end && isSpace(buffer.get(i + 1))) {
+            i++;
+          }
+        }
+        tokenStart = i + 1;
+      }
+    }
+    addToken(tokenStart, end);
+    while (tokenCount > 0 && tokenStarts[tokenCount - 1] == tokenEnds[tokenCount - 1]) {
+      tokenCount--;
+    }
+  }
+
+  private void addToken(int start, int end) {
+    if (tokenCount == tokenStarts.length) {
+      tokenStarts = Arrays.copyOf(tokenStarts, tokenCount * 2);
+      tokenEnds = Arrays.copyOf(tokenEnds, tokenCount * 2);
+    }
+    tokenStarts[tokenCount] = start;
+    tokenEnds[tokenCount++] = end;
+  }
+
+  private String token(int index) {
+    if (index >= tokenCount) {
+      throw new ArrayIndexOutOfBoundsException(
+          "Index " + index + " out of bounds for length " + tokenCount);
+    }
+    return decode(tokenStarts[index], tokenEnds[index]);
+  }
+
+  private boolean fieldIs(int field, byte[] keyword) {
+    int start = fieldStarts[field];
+    if (fieldEnds[field] - start != keyword.length) {
+      return false;
+    }
+    for (int i = 0; i < keyword.length; i++) {
+      byte b = buffer.get(start + i);
+      if (b >= 'A' && b <= 'Z') {
+        b += 'a' - 'A';
+      }
+      if (b != keyword[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void checkField(int field) {
+    if (field >= fieldCount) {
+      throw new ArrayIndexOutOfBoundsException(
+          "Index " + field + " out of bounds for length " + fieldCount);
+    }
+  }
+
+  private String string(int field) {
+    checkField(field);
+    return decode(fieldStarts[field], fieldEnds[field]);
+  }
+
+  private String trimmedString(int field) {
+    checkField(field);
+    int start = fieldStarts[field];
+    int end = fieldEnds[field];
+    while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+      start++;
+    }
+    while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+      end--;
+    }
+    return decode(start, end);
+  }
+
+  private String decode(int start, int end) {
+    int length = end - start;
+    if (length > scratch.length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    for (int i = 0; i < length; i++) {
+      scratch[i] = buffer.get(start + i);
+    }
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+
+  // Parses a plain decimal int in place, anything unusual goes to Integer.parseInt.
+  private int parseInt(int field) {
+    checkField(field);
+    int start = fieldStarts[field];
+    int end = fieldEnds[field];
+    boolean negative = start < end && buffer.get(start) == '-';
+    int i = negative ? start + 1 : start;
+    if (i == end || end - i > 9) {
+      return Integer.parseInt(string(field));
+    }
+    int value = 0;
+    for (; i < end; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return Integer.parseInt(string(field));
+      }
+      value = value * 10 + digit;
+    }
+    return negative ? -value : value;
+  }
+
+  // Parses a trimmed decimal such as 37.5 exactly when the digits fit, else Double.parseDouble.
+  private double parseDouble(int field) {
+    checkField(field);
+    int start = fieldStarts[field];
+    int end = fieldEnds[field];
+    while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+      start++;
+    }
+    while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+      end--;
+    }
+    boolean negative = start < end && buffer.get(start) == '-';
+    int i = negative ? start + 1 : start;
+    long mantissa = 0;
+    int digits = 0;
+    int fractionDigits = -1;
+    for (; i < end; i++) {
+      byte b = buffer.get(i);
+      if (b == '.' && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else if (b >= '0' && b <= '9' && digits < 15) {
+        mantissa = mantissa * 10 + (b - '0');
+        digits++;
+        if (fractionDigits >= 0) {
+          fractionDigits++;
+        }
+      } else {
+        return Double.parseDouble(trimmedString(field));
+      }
+    }
+    if (digits == 0) {
+      return Double.parseDouble(trimmedString(field));
+    }
+    double value = mantissa / POWERS_OF_TEN[Math.max(fractionDigits, 0)];
+    return negative ? -value : value;
+  }
+
+  // Parses yyyy-MM-ddTHH:mm[:ss] in place, other forms go to LocalDateTime.parse.
+  private LocalDateTime parseDateTime(int field) {
+    checkField(field);
+    int start = fieldStarts[field];
+    int end = fieldEnds[field];
+    while (start < end && (buffer.get(start) & 0xFF) <= ' ') {
+      start++;
+    }
+    while (end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+      end--;
+    }
+    int length = end - start;
+    if ((length == 16 || length == 19) && buffer.get(start + 4) == '-'
+        && buffer.get(start + 7) == '-' && buffer.get(start + 10) == 'T'
+        && buffer.get(start + 13) == ':' && (length == 16 || buffer.get(start + 16) == ':')) {
+      int year = digits(start, 4);
+      int month = digits(start + 5, 2);
+      int day = digits(start + 8, 2);
+      int hour = digits(start + 11, 2);
+      int minute = digits(start + 14, 2);
+      int second = length == 19 ? digits(start + 17, 2) : 0;
+      if (year >= 0 && month >= 0 && day >= 0 && hour >= 0 && minute >= 0 && second >= 0) {
+        try {
+          return LocalDateTime.of(year, month, day, hour, minute, second);
+        } catch (DateTimeException e) {
+          // Out of range, let the standard parser report it.
+        }
+      }
+    }
+    return LocalDateTime.parse(trimmedString(field));
+  }
+
+  // Reads a fixed number of digits, or returns -1 if any of them is not a digit.
+  private int digits(int start, int count) {
+    int value = 0;
+    for (int i = start; i < start + count; i++) {
+      int digit = buffer.get(i) - '0';
+      if (digit < 0 || digit > 9) {
+        return -1;
+      }
+      value = value * 10 + digit;
+    }
+    return value;
+  }
+
+  // The characters \s matches in a regular expression.
+  private static boolean isSpace(byte b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == 0x0B || b == '\f' || b == '\r';
+  }
+
+  private static byte[] ascii(String keyword) {
+    return keyword.getBytes(StandardCharsets.US_ASCII);
+  }
+}
@@ -0,0 +1,343 @@
+package clinic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+/**
+ * Clinic data parser that splits a file into chunks and parses them in
+ * parallel on a fork-join pool, then hands the lines over in two phases.
+ * Room, Staff and Patient lines come first, in file order, while later
+ * chunks are still being parsed. All other lines follow once every entity
+ * is in, again in file order. Before each line the handler is told its
+ * number through {@link ClinicDataHandler#line}, so a {@link ClinicDataApplier}
+ * made for out of order lines gives the same model as a sequential load.
+ * Files that fit in one chunk, or a pool with one worker, are parsed in
+ * order without the two phases.
+ *
+ * <p>A line that fails to parse, or that makes the handler throw, goes to
+ * {@link ClinicDataHandler#reject}. If that rethrows, as it does by
+ * default, on an entity line the load stops there as a sequential one
+ * would: the earlier lines of both phases are handed over, then the error
+ * is rethrown. A rethrow on a line of the second phase comes after all
+ * entities are in, so unlike a sequential load the later entities are kept.
+ */
+public class ParallelClinicDataParser implements ClinicDataParser {
+  /**
+   * Default smallest chunk handed to a worker.
+   */
+  public static final long DEFAULT_MIN_CHUNK_SIZE = 1L << 20;
+
+  private static final int CHUNKS_PER_WORKER = 4;
+
+  private final ForkJoinPool pool;
+  private final long minChunkSize;
+
+  /**
+   * Creates a parser running on the common fork-join pool.
+   */
+  public ParallelClinicDataParser() {
+    this(ForkJoinPool.commonPool(), DEFAULT_MIN_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a parser running on the given pool.
+   * @param pool Pool the chunks are parsed on.
+   * @param minChunkSize Smallest chunk in bytes, smaller files are parsed as one chunk.
+   */
+  public ParallelClinicDataParser(ForkJoinPool pool, long minChunkSize) {
+    if (pool == null) {
+      throw new IllegalArgumentException("The pool cannot be null.");
+    }
+    if (minChunkSize <= 0) {
+      throw new IllegalArgumentException("The chunk size must be positive.");
+    }
+    this.pool = pool;
+    this.minChunkSize = minChunkSize;
+  }
+
+  @Override
+  public long parse(Path file, ClinicDataHandler handler) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      List<long[]> ranges = split(channel);
+      if (ranges.size() <= 1) {
+        // Nothing to overlap, so parse in order without recording the lines.
+        return new MappedClinicDataParser().parse(channel, 0, channel.size(), handler);
+      }
+      List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+      for (long[] range : ranges) {
+        tasks.add(pool.submit(() -> parseChunk(channel, range[0], range[1])));
+      }
+      try {
+        return apply(channel, tasks, handler);
+      } finally {
+        for (ForkJoinTask<Chunk> task : tasks) {
+          task.cancel(false);
+        }
+      }
+    }
+  }
+
+  // Cuts the file into ranges of similar size that start at the beginning of a line.
+  private List<long[]> split(FileChannel channel) throws IOException {
+    long size = channel.size();
+    int parallelism = pool.getParallelism();
+    long chunkSize = parallelism == 1 ? size
+        : Math.max(minChunkSize, size / ((long) parallelism * CHUNKS_PER_WORKER));
+    List<long[]> ranges = new ArrayList<>();
+    long start = 0;
+    while (start < size) {
+      long end = start + chunkSize < size ? nextLineStart(channel, start + chunkSize) : size;
+      ranges.add(new long[] {start, end});
+      start = end;
+    }
+    return ranges;
+  }
+
+  private static long nextLineStart(FileChannel channel, long position) throws IOException {
+    long end = lineEnd(channel, position);
+    return end < channel.size() ? end + 1 : end;
+  }
+
+  // Offset of the line break at or after the position, or the file size if there is none.
+  private static long lineEnd(FileChannel channel, long position) throws IOException {
+    ByteBuffer bytes = ByteBuffer.allocate(4096);
+    long size = channel.size();
+    while (position < size) {
+      bytes.clear();
+      int read = channel.read(bytes, position);
+      if (read <= 0) {
+        break;
+      }
+      for (int i = 0; i < read; i++) {
+        if (bytes.get(i) == '\n') {
+          return position + i;
+        }
+      }
+      position += read;
+    }
+    return size;
+  }
+
+  // Reads a line back from the file, for a line that was parsed but not taken by the handler.
+  private static String readLine(FileChannel channel, long offset) throws IOException {
+    long end = lineEnd(channel, offset);
+    ByteBuffer bytes = ByteBuffer.allocate((int) (end - offset));
+    while (bytes.hasRemaining() && channel.read(bytes, offset + bytes.position()) > 0) {
+      // Keep reading until the whole line is in.
+    }
+    String line = new String(bytes.array(), 0, bytes.position(), StandardCharsets.UTF_8);
+    return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+  }
+
+  private static Chunk parseChunk(FileChannel channel, long from, long to) {
+    MappedClinicDataParser parser = new MappedClinicDataParser();
+    Chunk chunk = new Chunk(parser);
+    try {
+      chunk.lineCount = parser.parse(channel, from, to, chunk);
+    } catch (IOException | RuntimeException e) {
+      chunk.fail(e);
+    }
+    return chunk;
+  }
+
+  // Hands over entities chunk by chunk as they finish, then the other lines.
+  private static long apply(FileChannel channel, List<ForkJoinTask<Chunk>> tasks,
+      ClinicDataHandler handler) throws IOException {
+    List<Directive> actions = new ArrayList<>();
+    long stopLine = Long.MAX_VALUE;
+    Exception failure = null;
+    long firstLine = 0;
+    for (ForkJoinTask<Chunk> task : tasks) {
+      Chunk chunk = join(task);
+      for (Directive directive : chunk.entities) {
+        long lineNumber = firstLine + directive.line;
+        try {
+          hand(channel, handler, directive, lineNumber);
+        } catch (RuntimeException e) {
+          stopLine = lineNumber;
+          failure = e;
+          break;
+        }
+      }
+      for (Directive directive : chunk.actions) {
+        long lineNumber = firstLine + directive.line;
+        if (lineNumber >= stopLine) {
+          break;
+        }
+        actions.add(directive.renumber(lineNumber));
+      }
+      if (failure == null) {
+        failure = chunk.failure; // Parsing stopped there, so only earlier lines were recorded.
+      }
+      if (failure != null) {
+        break;
+      }
+      firstLine += chunk.lineCount;
+    }
+    for (Directive directive : actions) {
+      hand(channel, handler, directive, directive.line);
+    }
+    if (failure instanceof IOException) {
+      throw (IOException) failure;
+    } else if (failure != null) {
+      throw (RuntimeException) failure;
+    }
+    return firstLine;
+  }
+
+  // Hands a line to the handler, as rejected if it failed to parse or the handler throws.
+  private static void hand(FileChannel channel, ClinicDataHandler handler, Directive directive,
+      long lineNumber) throws IOException {
+    if (directive.error != null) {
+      handler.reject(lineNumber, directive.text, directive.error);
+      return;
+    }
+    try {
+      handler.line(lineNumber);
+      directive.action.accept(handler);
+    } catch (RuntimeException e) {
+      handler.reject(lineNumber, readLine(channel, directive.offset), e);
+    }
+  }
+
+  private static Chunk join(ForkJoinTask<Chunk> task) throws IOException {
+    try {
+      return task.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while loading clinic data.", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to parse clinic data.", e.getCause());
+    }
+  }
+
+  /**
+   * A parsed line waiting to be handed over, or one that failed to parse.
+   * Numbered within its chunk until it is moved to the second phase.
+   */
+  private static final class Directive {
+    private final long line;
+    private final long offset;
+    private final Consumer<ClinicDataHandler> action;
+    private final String text;
+    private final RuntimeException error;
+
+    private Directive(long line, long offset, Consumer<ClinicDataHandler> action, String text,
+        RuntimeException error) {
+      this.line = line;
+      this.offset = offset;
+      this.action = action;
+      this.text = text;
+      this.error = error;
+    }
+
+    private Directive renumber(long lineNumber) {
+      return new Directive(lineNumber, offset, action, text, error);
+    }
+  }
+
+  /**
+   * Records the lines of one chunk, split by phase.
+   */
+  private static final class Chunk implements ClinicDataHandler {
+    private final MappedClinicDataParser parser;
+    private final List<Directive> entities = new ArrayList<>();
+    private final List<Directive> actions = new ArrayList<>();
+    private long lineCount;
+    private Exception failure;
+
+    private Chunk(MappedClinicDataParser parser) {
+      this.parser = parser;
+    }
+
+    private void fail(Exception e) {
+      failure = e;
+    }
+
+    private void entity(Consumer<ClinicDataHandler> action) {
+      entities.add(new Directive(parser.getLineNumber(), parser.getLineOffset(), action, null,
+          null));
+    }
+
+    private void action(Consumer<ClinicDataHandler> action) {
+      actions.add(new Directive(parser.getLineNumber(), parser.getLineOffset(), action, null,
+          null));
+    }
+
+    // Handed over with the entities, so a handler that rethrows stops the load at this line.
+    @Override
+    public void reject(long lineNumber, String line, RuntimeException error) {
+      entities.add(new Directive(lineNumber, parser.getLineOffset(), null, line, error));
+    }
+
+    @Override
+    public void room(String roomName, String roomType, int x1, int y1, int x2, int y2) {
+      entity(h -> h.room(roomName, roomType, x1, y1, x2, y2));
+    }
+
+    @Override
+    public void staff(String firstName, String lastName, String role, String educationLevel,
+        String npi) {
+      entity(h -> h.staff(firstName, lastName, role, educationLevel, npi));
+    }
+
+    @Override
+    public void patient(String firstName, String lastName, String dob) {
+      entity(h -> h.patient(firstName, lastName, dob));
+    }
+
+    // Follows the patient on its line, joined to it so both are taken or rejected together.
+    @Override
+    public void visit(LocalDateTime visitTime, String chiefComplaint, double temperature) {
+      Directive patient = entities.isEmpty() ? null : entities.get(entities.size() - 1);
+      if (patient == null || patient.action == null || patient.line != parser.getLineNumber()) {
+        entity(h -> h.visit(visitTime, chiefComplaint, temperature));
+        return;
+      }
+      entities.set(entities.size() - 1, new Directive(patient.line, patient.offset, h -> {
+        patient.action.accept(h);
+        h.visit(visitTime, chiefComplaint, temperature);
+      }, null, null));
+    }
+
+    @Override
+    public void assign(String firstName, String lastName, String roomName) {
+      action(h -> h.assign(firstName, lastName, roomName));
+    }
+
+    @Override
+    public void assignStaff(String patientFirstName, String patientLastName,
+        String staffFirstName, String staffLastName) {
+      action(h -> h.assignStaff(patientFirstName, patientLastName, staffFirstName,
+          staffLastName));
+    }
+
+    @Override
+    public void deactivateStaff(String firstName, String lastName) {
+      action(h -> h.deactivateStaff(firstName, lastName));
+    }
+
+    @Override
+    public void sendHome(String patientFirstName, String patientLastName,
+        String staffFirstName, String staffLastName) {
+      action(h -> h.sendHome(patientFirstName, patientLastName, staffFirstName,
+          staffLastName));
+    }
+
+    @Override
+    public void unknown(String directive) {
+      action(h -> h.unknown(directive));
+    }
+  }
+}
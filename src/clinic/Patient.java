@@ -2,6 +2,7 @@ package clinic;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -17,7 +18,10 @@ public class Patient extends Person implements InterfacePatient {
   private String dob;
   private List<ClinicalStaff> assignedClinicalStaff;
   private ClinicalStaff deactivationApprover;
-  private List<InterfaceVisitRecord> visitRecords;
+  // Kept sorted by visit time. Replaced rather than changed, so readers that
+  // do not lock always see a complete history, and shares structure with the
+  // version it replaced, so adding a visit does not copy the whole history.
+  private volatile PersistentVector<InterfaceVisitRecord> visitRecords;
   
   /**
    * Setting up our patient with given name and dob.
@@ -31,7 +35,7 @@ public class Patient extends Person implements InterfacePatient {
     this.dob = dob;
     this.assignedRoom = null;
     this.assignedClinicalStaff = new ArrayList<>();
-    this.visitRecords = new ArrayList<>();
+    this.visitRecords = PersistentVector.empty();
   }
   
   @Override
@@ -62,12 +66,20 @@ public class Patient extends Person implements InterfacePatient {
     }
   }
   
+  /**
+   * Removing clinical staff.
+   * @param staff This is the staff member.
+   */
+  public void removeClinicalStaff(ClinicalStaff staff) {
+    assignedClinicalStaff.remove(staff);
+  }
+  
   /**
    * Gets the list of clinical staff assigned to this patient.
-   * @return List of clinical staff assigned to patient.
+   * @return Read only view of the clinical staff assigned to patient.
    */
   public List<ClinicalStaff> getAssignedClinicalStaff() {
-    return assignedClinicalStaff;
+    return Collections.unmodifiableList(assignedClinicalStaff);
   }
   
   /**
@@ -87,11 +99,27 @@ public class Patient extends Person implements InterfacePatient {
   }
   
   /**
-   * Adds a visit record to patient.
+   * Adds a visit record to patient, keeping the records in time order.
+   * Records with the same time stay in the order they were added.
    * @param record Creates visit record.
    */
-  public void addVisitRecord(InterfaceVisitRecord record) {
-    visitRecords.add(record);
+  public synchronized void addVisitRecord(InterfaceVisitRecord record) {
+    if (record == null) {
+      throw new IllegalArgumentException("The visit record cannot be null.");
+    }
+    PersistentVector<InterfaceVisitRecord> records = visitRecords;
+    int index = records.size();
+    if (index > 0 && isBefore(record.getVisitTime(), records.get(index - 1).getVisitTime())) {
+      index = firstVisitAfter(records, record.getVisitTime()); // Out of order, insert in place.
+    }
+    PersistentVector<InterfaceVisitRecord> updated = records.plus(record);
+    if (index < records.size()) {
+      for (int i = records.size(); i > index; i--) {
+        updated = updated.with(i, records.get(i - 1)); // Move later visits up one.
+      }
+      updated = updated.with(index, record);
+    }
+    visitRecords = updated;
   }
   
   /**
@@ -99,7 +127,70 @@ public class Patient extends Person implements InterfacePatient {
    * @return Recent visit record.
    */
   public InterfaceVisitRecord getLatestVisit() {
-    return visitRecords.isEmpty() ? null : visitRecords.get(visitRecords.size() - 1);
+    List<InterfaceVisitRecord> records = visitRecords;
+    return records.isEmpty() ? null : records.get(records.size() - 1);
+  }
+  
+  /**
+   * Counts the visits strictly after the given time.
+   * @param time Start of the window, exclusive.
+   * @return Number of visits after the time.
+   */
+  public int countVisitsAfter(LocalDateTime time) {
+    return countVisitsAfter(visitRecords, time);
+  }
+  
+  // Same as the instance method, for records captured earlier.
+  static int countVisitsAfter(List<InterfaceVisitRecord> records, LocalDateTime time) {
+    return records.size() - firstVisitAfter(records, time);
+  }
+  
+  /**
+   * Checks for a visit at or after the given time.
+   * @param time Start of the window, inclusive.
+   * @return True if the patient visited since the time.
+   */
+  public boolean hasVisitSince(LocalDateTime time) {
+    return hasVisitSince(visitRecords, time);
+  }
+  
+  // Same as the instance method, for records captured earlier.
+  static boolean hasVisitSince(List<InterfaceVisitRecord> records, LocalDateTime time) {
+    return !records.isEmpty()
+        && !isBefore(records.get(records.size() - 1).getVisitTime(), time);
+  }
+  
+  /**
+   * Get the visit records strictly after the given time, oldest first.
+   * @param time Start of the window, exclusive.
+   * @return Visits after the time.
+   */
+  public List<InterfaceVisitRecord> getVisitsAfter(LocalDateTime time) {
+    List<InterfaceVisitRecord> records = visitRecords;
+    return new ArrayList<>(records.subList(firstVisitAfter(records, time), records.size()));
+  }
+  
+  // Binary search for the index of the first visit strictly after the time.
+  private static int firstVisitAfter(List<InterfaceVisitRecord> records, LocalDateTime time) {
+    int low = 0;
+    int high = records.size();
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (isBefore(time, records.get(mid).getVisitTime())) {
+        high = mid;
+      } else {
+        low = mid + 1;
+      }
+    }
+    return low;
+  }
+  
+  // Null times sort before every real time.
+  private static boolean isBefore(LocalDateTime time, LocalDateTime other) {
+    if (time == null || other == null) {
+      return time == null && other != null;
+    }
+    return time.isBefore(other);
   }
   
   /**
@@ -112,15 +203,25 @@ public class Patient extends Person implements InterfacePatient {
         .collect(Collectors.toList());
   }
   
+  /**
+   * Checks for an active visit without building a list.
+   * @return True if any visit is not complete.
+   */
+  public boolean hasActiveVisits() {
+    for (InterfaceVisitRecord visit : visitRecords) {
+      if (!visit.isVisitComplete()) {
+        return true;
+      }
+    }
+    return false;
+  }
+  
   /**
    * Get all visit records within the last 365 days.
    * @return Last year of visit records.
    */
   public List<InterfaceVisitRecord> getVisitsLastYear() {
-    LocalDateTime oneYearAgo = LocalDateTime.now().minusDays(365);
-    return visitRecords.stream()
-        .filter(v -> v.getVisitTime().isAfter(oneYearAgo))
-        .collect(Collectors.toList());
+    return getVisitsAfter(LocalDateTime.now().minusDays(365));
   }
   
   @Override
@@ -151,10 +252,15 @@ public class Patient extends Person implements InterfacePatient {
   }
   
   /**
-   * List of interface visit records.
-   * @return Returns visit records. 
+   * List of interface visit records, oldest first.
+   * @return Returns a read only list of the visit records at the time of the call. 
    */
   public List<InterfaceVisitRecord> getVisitRecords() {
     return visitRecords;
   }
+  
+  // The records themselves, so a snapshot can keep them without copying.
+  PersistentVector<InterfaceVisitRecord> visitHistory() {
+    return visitRecords;
+  }
 }
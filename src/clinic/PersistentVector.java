@@ -0,0 +1,161 @@
+package clinic;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * Immutable list that shares structure between versions. Elements live in
+ * a tree of 32-wide nodes plus a tail node, so appending or replacing an
+ * element copies only the nodes on one path instead of the whole list.
+ * @param <T> Element type.
+ */
+public final class PersistentVector<T> extends AbstractList<T> {
+  private static final int BITS = 5;
+  private static final int WIDTH = 1 << BITS;
+  private static final int MASK = WIDTH - 1;
+  private static final PersistentVector<Object> EMPTY =
+      new PersistentVector<>(0, BITS, new Object[WIDTH], new Object[0]);
+
+  private final int size;
+  private final int shift;
+  private final Object[] root;
+  private final Object[] tail;
+
+  private PersistentVector(int size, int shift, Object[] root, Object[] tail) {
+    this.size = size;
+    this.shift = shift;
+    this.root = root;
+    this.tail = tail;
+  }
+
+  /**
+   * Gets the empty vector.
+   * @param <T> Element type.
+   * @return Empty vector.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> PersistentVector<T> empty() {
+    return (PersistentVector<T>) EMPTY;
+  }
+
+  /**
+   * Builds a vector holding the given elements.
+   * @param <T> Element type.
+   * @param elements Elements in order.
+   * @return Vector of the elements.
+   */
+  public static <T> PersistentVector<T> of(Iterable<? extends T> elements) {
+    PersistentVector<T> vector = empty();
+    for (T element : elements) {
+      vector = vector.plus(element);
+    }
+    return vector;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public T get(int index) {
+    checkIndex(index);
+    return (T) nodeFor(index)[index & MASK];
+  }
+
+  /**
+   * Creates a new version with an element appended.
+   * @param element Element to append.
+   * @return New vector, this one is unchanged.
+   */
+  public PersistentVector<T> plus(T element) {
+    if (size - tailOffset() < WIDTH) {
+      Object[] newTail = Arrays.copyOf(tail, tail.length + 1);
+      newTail[tail.length] = element;
+      return new PersistentVector<>(size + 1, shift, root, newTail);
+    }
+    // The tail is full, move it into the tree and start a new one.
+    Object[] newRoot;
+    int newShift = shift;
+    if ((size >>> BITS) > (1 << shift)) {
+      newRoot = new Object[WIDTH];
+      newRoot[0] = root;
+      newRoot[1] = newPath(shift, tail);
+      newShift += BITS;
+    } else {
+      newRoot = pushTail(shift, root, tail);
+    }
+    return new PersistentVector<>(size + 1, newShift, newRoot, new Object[] {element});
+  }
+
+  /**
+   * Creates a new version with one element replaced.
+   * @param index Position of the element.
+   * @param element New element.
+   * @return New vector, this one is unchanged.
+   */
+  public PersistentVector<T> with(int index, T element) {
+    checkIndex(index);
+    if (index >= tailOffset()) {
+      Object[] newTail = tail.clone();
+      newTail[index & MASK] = element;
+      return new PersistentVector<>(size, shift, root, newTail);
+    }
+    return new PersistentVector<>(size, shift, replace(shift, root, index, element), tail);
+  }
+
+  private int tailOffset() {
+    return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+  }
+
+  private Object[] nodeFor(int index) {
+    if (index >= tailOffset()) {
+      return tail;
+    }
+    Object[] node = root;
+    for (int level = shift; level > 0; level -= BITS) {
+      node = (Object[]) node[(index >>> level) & MASK];
+    }
+    return node;
+  }
+
+  private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+    int child = ((size - 1) >>> level) & MASK;
+    Object[] copy = parent.clone();
+    if (level == BITS) {
+      copy[child] = tailNode;
+    } else {
+      Object[] next = (Object[]) parent[child];
+      copy[child] = next != null ? pushTail(level - BITS, next, tailNode)
+          : newPath(level - BITS, tailNode);
+    }
+    return copy;
+  }
+
+  private static Object[] newPath(int level, Object[] node) {
+    if (level == 0) {
+      return node;
+    }
+    Object[] path = new Object[WIDTH];
+    path[0] = newPath(level - BITS, node);
+    return path;
+  }
+
+  private static Object[] replace(int level, Object[] node, int index, Object element) {
+    Object[] copy = node.clone();
+    if (level == 0) {
+      copy[index & MASK] = element;
+    } else {
+      int child = (index >>> level) & MASK;
+      copy[child] = replace(level - BITS, (Object[]) node[child], index, element);
+    }
+    return copy;
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+  }
+}
@@ -0,0 +1,151 @@
+package clinic;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes an RGB PNG one row at a time, so an image of any size can be
+ * written without holding all of it in memory.
+ */
+class PngStreamWriter implements Closeable {
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+  private static final int CHUNK_SIZE = 1 << 16;
+
+  private final DataOutputStream out;
+  private final DeflaterOutputStream pixels;
+  private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+  private final byte[] row;
+  private final int width;
+  private final int height;
+  private int rowsWritten;
+
+  /**
+   * Starts an image by writing its header.
+   * @param out Stream the image is written to, closed with the writer.
+   * @param width Width in pixels.
+   * @param height Height in pixels.
+   * @throws IOException If the header cannot be written.
+   */
+  PngStreamWriter(OutputStream out, int width, int height) throws IOException {
+    if (width <= 0 || height <= 0) {
+      throw new IllegalArgumentException("The image must be at least one pixel across.");
+    }
+    this.out = new DataOutputStream(out);
+    this.width = width;
+    this.height = height;
+    this.row = new byte[1 + width * 3]; // A filter type byte, then the pixels.
+    this.out.write(SIGNATURE);
+    byte[] header = new byte[13];
+    writeInt(header, 0, width);
+    writeInt(header, 4, height);
+    header[8] = 8; // Bits per sample.
+    header[9] = 2; // Truecolor, no alpha.
+    writeChunk("IHDR", header, header.length);
+    this.pixels = new DeflaterOutputStream(new ImageData(), deflater, CHUNK_SIZE);
+  }
+
+  /**
+   * Writes the next row of pixels.
+   * @param rgb Pixels as packed RGB ints, alpha is ignored.
+   * @param offset Index of the row's first pixel in the array.
+   * @throws IOException If the row cannot be written.
+   */
+  void writeRow(int[] rgb, int offset) throws IOException {
+    if (rowsWritten == height) {
+      throw new IllegalStateException("Every row has already been written.");
+    }
+    for (int x = 0; x < width; x++) {
+      int pixel = rgb[offset + x];
+      row[1 + x * 3] = (byte) (pixel >> 16);
+      row[2 + x * 3] = (byte) (pixel >> 8);
+      row[3 + x * 3] = (byte) pixel;
+    }
+    pixels.write(row);
+    rowsWritten++;
+  }
+
+  /**
+   * Finishes the image and closes the stream.
+   * @throws IOException If the image cannot be finished.
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      if (rowsWritten < height) {
+        throw new IOException("Only " + rowsWritten + " of " + height + " rows were written.");
+      }
+      pixels.close(); // Writes the last image data chunk.
+      writeChunk("IEND", new byte[0], 0);
+    } finally {
+      deflater.end();
+      out.close();
+    }
+  }
+
+  private void writeChunk(String type, byte[] data, int length) throws IOException {
+    byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+    CRC32 crc = new CRC32();
+    crc.update(typeBytes);
+    crc.update(data, 0, length);
+    out.writeInt(length);
+    out.write(typeBytes);
+    out.write(data, 0, length);
+    out.writeInt((int) crc.getValue());
+  }
+
+  private static void writeInt(byte[] bytes, int at, int value) {
+    bytes[at] = (byte) (value >>> 24);
+    bytes[at + 1] = (byte) (value >>> 16);
+    bytes[at + 2] = (byte) (value >>> 8);
+    bytes[at + 3] = (byte) value;
+  }
+
+  /**
+   * Collects compressed pixels and writes them out as image data chunks.
+   * Closing it writes what is left but leaves the file open.
+   */
+  private final class ImageData extends OutputStream {
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private int count;
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == buffer.length) {
+        flushChunk();
+      }
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      while (length > 0) {
+        if (count == buffer.length) {
+          flushChunk();
+        }
+        int n = Math.min(length, buffer.length - count);
+        System.arraycopy(bytes, offset, buffer, count, n);
+        count += n;
+        offset += n;
+        length -= n;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (count > 0) {
+        flushChunk();
+      }
+    }
+
+    private void flushChunk() throws IOException {
+      writeChunk("IDAT", buffer, count);
+      count = 0;
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package clinic;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Schedules view updates on a dedicated background thread.
+ * Mutations only mark the plan as dirty, bursts of mutations are
+ * coalesced into a single update and updates never run more often
+ * than the configured maximum frame rate.
+ */
+public class RenderScheduler {
+  private final Runnable renderTask;
+  private final ScheduledExecutorService executor;
+  private final AtomicBoolean dirty = new AtomicBoolean(false);
+  private final AtomicBoolean scheduled = new AtomicBoolean(false);
+  // Notified whenever the scheduler may have become idle.
+  private final Object idle = new Object();
+  private volatile long minFrameIntervalNanos;
+  private volatile long lastRenderNanos;
+
+  /**
+   * Creates a scheduler for the given render task.
+   * @param renderTask Work that tells the view about one batch of changes.
+   * @param maxFrameRate Maximum number of renders per second.
+   */
+  public RenderScheduler(Runnable renderTask, int maxFrameRate) {
+    if (renderTask == null) {
+      throw new IllegalArgumentException("The render task cannot be null.");
+    }
+    this.renderTask = renderTask;
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "clinic-render");
+      thread.setDaemon(true);
+      return thread;
+    });
+    setMaxFrameRate(maxFrameRate);
+    this.lastRenderNanos = System.nanoTime() - minFrameIntervalNanos;
+  }
+
+  /**
+   * Changes the maximum number of renders per second.
+   * @param maxFrameRate Frames per second, must be positive.
+   */
+  public void setMaxFrameRate(int maxFrameRate) {
+    if (maxFrameRate <= 0) {
+      throw new IllegalArgumentException("The frame rate must be positive.");
+    }
+    this.minFrameIntervalNanos = TimeUnit.SECONDS.toNanos(1) / maxFrameRate;
+  }
+
+  /**
+   * Marks the floor plan as dirty and makes sure a render is pending.
+   * Returns immediately, the render happens on the render thread.
+   */
+  public void requestRender() {
+    dirty.set(true);
+    scheduleIfIdle();
+  }
+
+  /**
+   * Checks if a change is still waiting to be rendered.
+   * @return True if the plan is dirty.
+   */
+  public boolean isDirty() {
+    return dirty.get();
+  }
+
+  /**
+   * Blocks until every change requested so far has been rendered.
+   * @param timeoutMillis Maximum time to wait.
+   * @return True if the plan was rendered before the timeout.
+   */
+  public boolean awaitIdle(long timeoutMillis) {
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    synchronized (idle) {
+      while (dirty.get() || scheduled.get()) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          return false;
+        }
+        try {
+          TimeUnit.NANOSECONDS.timedWait(idle, remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Stops the render thread, pending and later renders are dropped.
+   */
+  public void shutdown() {
+    executor.shutdownNow();
+    dropPending();
+  }
+
+  // Nothing will be rendered any more, so nothing is left waiting to be.
+  private void dropPending() {
+    dirty.set(false);
+    scheduled.set(false);
+    signalIdle();
+  }
+
+  private void signalIdle() {
+    synchronized (idle) {
+      idle.notifyAll();
+    }
+  }
+
+  private void scheduleIfIdle() {
+    if (!scheduled.compareAndSet(false, true)) {
+      return; // A render is already pending and will pick up this change.
+    }
+    long wait = lastRenderNanos + minFrameIntervalNanos - System.nanoTime();
+    try {
+      executor.schedule(this::renderFrame, Math.max(0, wait), TimeUnit.NANOSECONDS);
+    } catch (RejectedExecutionException e) {
+      dropPending(); // Shut down, nothing is rendered any more.
+    }
+  }
+
+  private void renderFrame() {
+    dirty.set(false);
+    try {
+      renderTask.run();
+    } catch (RuntimeException e) {
+      System.err.println("Error rendering clinic layout: " + e.getMessage());
+    } finally {
+      lastRenderNanos = System.nanoTime();
+      scheduled.set(false);
+    }
+    if (dirty.get()) {
+      scheduleIfIdle(); // Changes arrived while rendering.
+    }
+    signalIdle();
+  }
+}
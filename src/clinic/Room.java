@@ -106,6 +106,14 @@ public class Room implements InterfaceRoom {
     return !assignedPatients.isEmpty();
   }
   
+  /**
+   * Gets one of the patients in the room without copying them all.
+   * @return A patient in the room, or null if it is empty.
+   */
+  public Patient getAnyPatient() {
+    return assignedPatients.isEmpty() ? null : assignedPatients.iterator().next();
+  }
+  
   /**
    * Returns a copy of the assigned patients in the room to prevent 
    * external modification of internal set.
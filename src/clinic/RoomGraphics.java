@@ -1,23 +1,36 @@
 package clinic;
 
-import java.awt.Color;
-import java.awt.Font;
+import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.util.List;
 
 /**
  * Represents a graphical representation of a room.
  */
 public class RoomGraphics {
-  private final int x; 
-  private final int y; 
+  /**
+   * Only the filled rectangle of the room.
+   */
+  public static final int DETAIL_BLOCK = 0;
+  /**
+   * The rectangle, its border and the room name.
+   */
+  public static final int DETAIL_NAME = 1;
+  /**
+   * Everything, including the patient and staff names.
+   */
+  public static final int DETAIL_FULL = 2;
+
+  private final int x;
+  private final int y;
   private final int width;
   private final int height;
   private final String roomName;
   private final List<String> patients;
   private final List<String> staff;
   private final boolean isOccupied;
-  
+
   /**
    * Generates graphic for each room.
    * @param x X coord.
@@ -29,7 +42,7 @@ public class RoomGraphics {
    * @param patients Patient in room.
    * @param staff Staff in room.
    */
-  public RoomGraphics(int x, int y, int width, int height, String roomName, 
+  public RoomGraphics(int x, int y, int width, int height, String roomName,
       boolean isOccupied, List<String> patients, List<String> staff) {
     this.x = x;
     this.y = y;
@@ -40,34 +53,97 @@ public class RoomGraphics {
     this.patients = patients;
     this.staff = staff;
   }
-  
+
+  /**
+   * Creates the graphic of a room as it was in a snapshot.
+   * @param state Room state from a snapshot.
+   * @return Graphic of the room.
+   */
+  public static RoomGraphics of(ClinicSnapshot.RoomState state) {
+    Room room = state.getRoom();
+    return new RoomGraphics(room.getX1(), room.getY1(), room.getX2() - room.getX1(),
+        room.getY2() - room.getY1(), room.getRoomName(), state.isOccupied(),
+        state.getPatientNames(), state.getStaffNames());
+  }
+
+  /**
+   * Gets the x coordinate of the room.
+   * @return X coord.
+   */
+  public int getX() {
+    return x;
+  }
+
+  /**
+   * Gets the y coordinate of the room.
+   * @return Y coord.
+   */
+  public int getY() {
+    return y;
+  }
+
+  /**
+   * Gets the width of the room.
+   * @return Width.
+   */
+  public int getWidth() {
+    return width;
+  }
+
+  /**
+   * Gets the height of the room.
+   * @return Height.
+   */
+  public int getHeight() {
+    return height;
+  }
+
+  /**
+   * Checks if the room is occupied.
+   * @return Occupancy status.
+   */
+  public boolean isOccupied() {
+    return isOccupied;
+  }
+
+  /**
+   * Gets the area draw covers when drawing into the given rectangle.
+   * @param sx X coord to draw at.
+   * @param sy Y coord to draw at.
+   * @param sw Width to draw.
+   * @param sh Height to draw.
+   * @param detail One of the DETAIL constants.
+   * @param metrics Metrics of GraphicsHandler.FONT.
+   * @return Covered area, text included.
+   */
+  public Rectangle getDrawnBounds(int sx, int sy, int sw, int sh, int detail,
+      FontMetrics metrics) {
+    return GraphicsHandler.roomBounds(metrics, sx, sy, sw, sh, roomName, patients, staff,
+        detail);
+  }
+
   /**
    * Draws the room on the given graphics context.
-   * 
+   *
    * @param g The graphics context to draw on.
    */
   public void draw(Graphics g) {
-    g.setColor(isOccupied ? Color.RED : Color.GREEN); // Red for occupied, green for empty
-    g.fillRect(x, y, width, height);
-
-    g.setColor(Color.BLACK);
-    g.drawRect(x, y, width, height);
+    draw(g, x, y, width, height, DETAIL_FULL);
+  }
 
-    g.drawString(roomName, x + 5, y + 15); // Room name
-    
-    int textY = y + 30;
-    g.setFont(new Font("Arial", Font.PLAIN, 12));
-    
-    for (String patient : patients) {
-      g.drawString("Patient: " + patient, x + 5, textY);
-      textY += 15;
-    }
-    
-    for (String staffMember : staff) {
-      g.drawString("Staff: " + staffMember, x + 5, textY);
-      textY += 15;
-    }
-    
+  /**
+   * Draws the room into a rectangle of the graphics context, text is
+   * drawn at its normal size whatever the size of the rectangle.
+   * @param g The graphics context to draw on.
+   * @param sx X coord to draw at.
+   * @param sy Y coord to draw at.
+   * @param sw Width to draw.
+   * @param sh Height to draw.
+   * @param detail One of the DETAIL constants.
+   */
+  public void draw(Graphics g, int sx, int sy, int sw, int sh, int detail) {
+    GraphicsHandler.paintRoom(g, sx, sy, sw, sh, roomName, isOccupied, patients, staff,
+        detail);
   }
 
 }
@@ -0,0 +1,119 @@
+package clinic;
+
+import java.awt.FontMetrics;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Where each room of a snapshot is drawn on the floor plan, text
+ * included, so a renderer can tell which rooms reach into an area and
+ * which areas a newer snapshot changed.
+ */
+class RoomLayout {
+  private final FontMetrics metrics;
+  // Room positions indexed by room rectangle, and the areas the rooms are drawn over.
+  private final SpatialIndex<Integer> roomIndex = new SpatialIndex<>();
+  private final List<Rectangle> drawnBounds = new ArrayList<>();
+  private final Rectangle planBounds = new Rectangle();
+  // Furthest any room's text reaches past its right or bottom edge.
+  private int overhang;
+  private ClinicSnapshot snapshot;
+
+  /**
+   * Creates an empty layout.
+   * @param metrics Metrics of the font room text is drawn with, GraphicsHandler.FONT.
+   */
+  RoomLayout(FontMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Brings the layout up to date with a snapshot.
+   * @param current Snapshot to lay out.
+   * @return Areas to redraw, covering each changed room before and after
+   *     the change, or null if everything should be redrawn.
+   */
+  List<Rectangle> update(ClinicSnapshot current) {
+    List<Integer> changed = snapshot == null ? null
+        : current.changedRoomsSince(snapshot.getVersion());
+    snapshot = current;
+    List<ClinicSnapshot.RoomState> states = current.getRoomStates();
+    if (changed == null) {
+      roomIndex.clear();
+      drawnBounds.clear();
+      planBounds.setBounds(0, 0, 0, 0);
+      overhang = 0;
+      for (int i = 0; i < states.size(); i++) {
+        track(i, states.get(i));
+      }
+      return null;
+    }
+    List<Rectangle> regions = new ArrayList<>(changed.size());
+    for (int index : changed) {
+      regions.add(track(index, states.get(index)));
+    }
+    return regions;
+  }
+
+  /**
+   * Gets the snapshot last laid out.
+   * @return Snapshot, or null before the first update.
+   */
+  ClinicSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Gets the number of rooms laid out.
+   * @return Room count.
+   */
+  int size() {
+    return drawnBounds.size();
+  }
+
+  /**
+   * Gets an area holding every room drawn, starting at the origin.
+   * It may be larger than needed after rooms shrink.
+   * @return Plan area.
+   */
+  Rectangle getPlanBounds() {
+    return new Rectangle(planBounds);
+  }
+
+  /**
+   * Finds the rooms whose drawing reaches into an area.
+   * @param area Area of the floor plan.
+   * @return Room positions, in the order the rooms are drawn.
+   */
+  List<Integer> roomsIn(Rectangle area) {
+    List<Integer> found = new ArrayList<>();
+    for (int index : roomIndex.findIn(area.x - overhang, area.y - overhang,
+        area.x + area.width, area.y + area.height)) {
+      if (drawnBounds.get(index).intersects(area)) {
+        found.add(index);
+      }
+    }
+    return found;
+  }
+
+  // Records where a room is drawn, returns the area to redraw, old and new.
+  private Rectangle track(int index, ClinicSnapshot.RoomState state) {
+    Room room = state.getRoom();
+    Rectangle bounds = GraphicsHandler.roomBounds(metrics, room.getX1(), room.getY1(),
+        room.getX2() - room.getX1(), room.getY2() - room.getY1(), room.getRoomName(),
+        state.getPatientNames(), state.getStaffNames(), RoomGraphics.DETAIL_FULL);
+    overhang = Math.max(overhang, Math.max(bounds.x + bounds.width - room.getX2(),
+        bounds.y + bounds.height - room.getY2()));
+    planBounds.add(bounds.x + bounds.width, bounds.y + bounds.height);
+    Rectangle region = new Rectangle(bounds);
+    if (index < drawnBounds.size()) {
+      region.add(drawnBounds.get(index));
+      drawnBounds.set(index, bounds);
+    } else {
+      drawnBounds.add(bounds);
+      roomIndex.add(index, room.getX1(), room.getY1(), room.getX2(), room.getY2());
+    }
+    return region;
+  }
+}
@@ -1,9 +1,8 @@
 package clinic;
 
+import java.awt.Point;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.util.ArrayList;
-import java.util.List;
 import javax.swing.JLabel;
 
 /**
@@ -29,28 +28,26 @@ public class RoomSelectionListener extends MouseAdapter {
   
   @Override
   public void mouseClicked(MouseEvent e) {
-    int x = e.getX();
-    int y = e.getY();
-    
-    // Iterate through all rooms to find the clicked one
-    for (Room room : model.getAllRooms()) {
-      if (x >= room.getX1() && x <= room.getX2() && y >= room.getY1() && y <= room.getY2()) {
-        selectedRoom = room;
+    Point point = e.getPoint();
+    if (e.getComponent() instanceof GraphicsPanel) {
+      point = ((GraphicsPanel) e.getComponent()).toWorld(point); // Undo zoom and pan
+    }
 
-        // Convert Set to List for easy indexing
-        List<Patient> patients = new ArrayList<>(room.getAssignedPatients());
-        selectedPatient = patients.isEmpty() ? null : patients.get(0);
+    // Look up the clicked room in the model's spatial index
+    Room room = model.findRoomAt(point.x, point.y);
+    if (room != null) {
+      selectedRoom = room;
+      selectedPatient = room.getAnyPatient();
 
-        // Update the status label to show the selected room and patient
-        String message = "Selected room: " + room.getRoomName();
-        if (selectedPatient != null) {
-          message += ", Selected patient: " + selectedPatient.getFullName();
-        } else {
-          message += ", No patient selected";
-        }
-        statusLabel.setText(message);
-        return; 
+      // Update the status label to show the selected room and patient
+      String message = "Selected room: " + room.getRoomName();
+      if (selectedPatient != null) {
+        message += ", Selected patient: " + selectedPatient.getFullName();
+      } else {
+        message += ", No patient selected";
       }
+      statusLabel.setText(message);
+      return; 
     }
     // If no room was clicked
     selectedRoom = null;
@@ -0,0 +1,308 @@
+package clinic;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Uniform grid over axis aligned rectangles, for finding the items at a
+ * point, in an area or nearest to a point without testing every item.
+ * Each item is listed in the grid cells its rectangle overlaps, items
+ * spanning a very large number of cells are kept aside and always tested.
+ * When several items match, the one added first wins, the same as a scan
+ * over the items in the order they were added. Edges are inclusive.
+ *
+ * @param <T> Type of the items.
+ */
+public class SpatialIndex<T> {
+  /**
+   * Default width and height of a grid cell.
+   */
+  public static final int DEFAULT_CELL_SIZE = 64;
+
+  private static final int MAX_CELLS_PER_ITEM = 1024;
+
+  private final int cellSize;
+  private final List<T> items = new ArrayList<>();
+  private final Map<Long, Cell> cells = new HashMap<>();
+  private final Cell oversized = new Cell();
+  private int[] bounds = new int[64];
+  private int minCellX = Integer.MAX_VALUE;
+  private int minCellY = Integer.MAX_VALUE;
+  private int maxCellX = Integer.MIN_VALUE;
+  private int maxCellY = Integer.MIN_VALUE;
+  private int minX = Integer.MAX_VALUE;
+  private int minY = Integer.MAX_VALUE;
+  private int maxX = Integer.MIN_VALUE;
+  private int maxY = Integer.MIN_VALUE;
+
+  /**
+   * Creates an index with the default cell size.
+   */
+  public SpatialIndex() {
+    this(DEFAULT_CELL_SIZE);
+  }
+
+  /**
+   * Creates an index.
+   * @param cellSize Width and height of a grid cell, about the size of a typical item.
+   */
+  public SpatialIndex(int cellSize) {
+    if (cellSize <= 0) {
+      throw new IllegalArgumentException("The cell size must be positive.");
+    }
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * Adds an item. The corners may be given in any order.
+   * @param item Item to add.
+   * @param x1 First x coordinate.
+   * @param y1 First y coordinate.
+   * @param x2 Second x coordinate.
+   * @param y2 Second y coordinate.
+   */
+  public void add(T item, int x1, int y1, int x2, int y2) {
+    int id = items.size();
+    items.add(item);
+    if (bounds.length < (id + 1) * 4) {
+      bounds = Arrays.copyOf(bounds, bounds.length * 2);
+    }
+    bounds[id * 4] = Math.min(x1, x2);
+    bounds[id * 4 + 1] = Math.min(y1, y2);
+    bounds[id * 4 + 2] = Math.max(x1, x2);
+    bounds[id * 4 + 3] = Math.max(y1, y2);
+    minX = Math.min(minX, bounds[id * 4]);
+    minY = Math.min(minY, bounds[id * 4 + 1]);
+    maxX = Math.max(maxX, bounds[id * 4 + 2]);
+    maxY = Math.max(maxY, bounds[id * 4 + 3]);
+    int fromX = cell(bounds[id * 4]);
+    int fromY = cell(bounds[id * 4 + 1]);
+    int toX = cell(bounds[id * 4 + 2]);
+    int toY = cell(bounds[id * 4 + 3]);
+    if (((long) toX - fromX + 1) * ((long) toY - fromY + 1) > MAX_CELLS_PER_ITEM) {
+      oversized.add(id);
+      return;
+    }
+    for (int cx = fromX; cx <= toX; cx++) {
+      for (int cy = fromY; cy <= toY; cy++) {
+        cells.computeIfAbsent(key(cx, cy), k -> new Cell()).add(id);
+      }
+    }
+    minCellX = Math.min(minCellX, fromX);
+    minCellY = Math.min(minCellY, fromY);
+    maxCellX = Math.max(maxCellX, toX);
+    maxCellY = Math.max(maxCellY, toY);
+  }
+
+  /**
+   * Finds the first added item whose rectangle contains the point.
+   * @param x X coordinate.
+   * @param y Y coordinate.
+   * @return The item, or null if none contains the point.
+   */
+  public T findAt(int x, int y) {
+    int best = firstContaining(cells.get(key(cell(x), cell(y))), x, y);
+    int aside = firstContaining(oversized, x, y);
+    if (best < 0 || aside >= 0 && aside < best) {
+      best = aside;
+    }
+    return best < 0 ? null : items.get(best);
+  }
+
+  /**
+   * Finds the items whose rectangles overlap an area.
+   * @param x1 First x coordinate of the area.
+   * @param y1 First y coordinate of the area.
+   * @param x2 Second x coordinate of the area.
+   * @param y2 Second y coordinate of the area.
+   * @return Overlapping items in the order they were added.
+   */
+  public List<T> findIn(int x1, int y1, int x2, int y2) {
+    int left = Math.min(x1, x2);
+    int top = Math.min(y1, y2);
+    int right = Math.max(x1, x2);
+    int bottom = Math.max(y1, y2);
+    if (left <= minX && top <= minY && right >= maxX && bottom >= maxY) {
+      return new ArrayList<>(items); // The area covers everything, as when zoomed far out.
+    }
+    BitSet found = new BitSet(items.size());
+    long width = (long) cell(right) - cell(left) + 1;
+    long height = (long) cell(bottom) - cell(top) + 1;
+    if (width > cells.size() || height > cells.size() || width * height > cells.size()) {
+      // Cheaper to look at every cell that exists than at every cell of the area.
+      for (Cell c : cells.values()) {
+        collectOverlapping(c, left, top, right, bottom, found);
+      }
+    } else {
+      for (int cx = cell(left); cx <= cell(right); cx++) {
+        for (int cy = cell(top); cy <= cell(bottom); cy++) {
+          collectOverlapping(cells.get(key(cx, cy)), left, top, right, bottom, found);
+        }
+      }
+    }
+    collectOverlapping(oversized, left, top, right, bottom, found);
+    List<T> result = new ArrayList<>(found.cardinality());
+    for (int id = found.nextSetBit(0); id >= 0; id = found.nextSetBit(id + 1)) {
+      result.add(items.get(id));
+    }
+    return result;
+  }
+
+  /**
+   * Finds the item whose rectangle is closest to a point, zero if the
+   * point is inside. Ties go to the item added first.
+   * @param x X coordinate.
+   * @param y Y coordinate.
+   * @return The item, or null if the index is empty.
+   */
+  public T findNearest(int x, int y) {
+    Nearest nearest = new Nearest(x, y);
+    nearest.consider(oversized);
+    if (!cells.isEmpty()) {
+      int cx = cell(x);
+      int cy = cell(y);
+      long maxRing = Math.max(Math.max((long) cx - minCellX, (long) maxCellX - cx),
+          Math.max((long) cy - minCellY, (long) maxCellY - cy));
+      long visited = 0;
+      for (long ring = 0; ring <= maxRing; ring++) {
+        visited += ring == 0 ? 1 : ring * 8;
+        if (visited > cells.size() * 4L) {
+          // The rings are mostly empty out here, finish with every cell.
+          for (Cell c : cells.values()) {
+            nearest.consider(c);
+          }
+          break;
+        }
+        considerRing(nearest, cx, cy, (int) ring);
+        long reach = ring * cellSize; // Anything in a farther ring is at least this far.
+        if (nearest.best >= 0 && nearest.bestDistance < reach * reach) {
+          break;
+        }
+      }
+    }
+    return nearest.best < 0 ? null : items.get(nearest.best);
+  }
+
+  /**
+   * Gets the number of items added.
+   * @return Item count.
+   */
+  public int size() {
+    return items.size();
+  }
+
+  /**
+   * Removes every item.
+   */
+  public void clear() {
+    items.clear();
+    cells.clear();
+    oversized.count = 0;
+    minCellX = Integer.MAX_VALUE;
+    minCellY = Integer.MAX_VALUE;
+    maxCellX = Integer.MIN_VALUE;
+    maxCellY = Integer.MIN_VALUE;
+    minX = Integer.MAX_VALUE;
+    minY = Integer.MAX_VALUE;
+    maxX = Integer.MIN_VALUE;
+    maxY = Integer.MIN_VALUE;
+  }
+
+  private void considerRing(Nearest nearest, int cx, int cy, int ring) {
+    for (int dx = -ring; dx <= ring; dx++) {
+      boolean edge = dx == -ring || dx == ring;
+      for (int dy = -ring; dy <= ring; dy += edge ? 1 : ring * 2) {
+        nearest.consider(cells.get(key(cx + dx, cy + dy)));
+        if (ring == 0) {
+          break;
+        }
+      }
+    }
+  }
+
+  private int firstContaining(Cell c, int x, int y) {
+    if (c != null) {
+      for (int i = 0; i < c.count; i++) {
+        int id = c.ids[i];
+        if (x >= bounds[id * 4] && y >= bounds[id * 4 + 1] && x <= bounds[id * 4 + 2]
+            && y <= bounds[id * 4 + 3]) {
+          return id; // Ids are stored in the order they were added.
+        }
+      }
+    }
+    return -1;
+  }
+
+  private void collectOverlapping(Cell c, int left, int top, int right, int bottom,
+      BitSet found) {
+    if (c == null) {
+      return;
+    }
+    for (int i = 0; i < c.count; i++) {
+      int id = c.ids[i];
+      if (bounds[id * 4] <= right && bounds[id * 4 + 2] >= left && bounds[id * 4 + 1] <= bottom
+          && bounds[id * 4 + 3] >= top) {
+        found.set(id);
+      }
+    }
+  }
+
+  private int cell(int coordinate) {
+    return Math.floorDiv(coordinate, cellSize);
+  }
+
+  private static long key(int cx, int cy) {
+    return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Ids of the items listed in one grid cell, in the order they were added.
+   */
+  private static final class Cell {
+    private int[] ids = new int[4];
+    private int count;
+
+    private void add(int id) {
+      if (count == ids.length) {
+        ids = Arrays.copyOf(ids, count * 2);
+      }
+      ids[count++] = id;
+    }
+  }
+
+  /**
+   * Closest item found so far by a nearest search.
+   */
+  private final class Nearest {
+    private final int x;
+    private final int y;
+    private int best = -1;
+    private long bestDistance = Long.MAX_VALUE;
+
+    private Nearest(int x, int y) {
+      this.x = x;
+      this.y = y;
+    }
+
+    private void consider(Cell c) {
+      if (c == null) {
+        return;
+      }
+      for (int i = 0; i < c.count; i++) {
+        int id = c.ids[i];
+        long dx = Math.max(0, Math.max((long) bounds[id * 4] - x, (long) x - bounds[id * 4 + 2]));
+        long dy = Math.max(0,
+            Math.max((long) bounds[id * 4 + 1] - y, (long) y - bounds[id * 4 + 3]));
+        long distance = dx * dx + dy * dy;
+        if (distance < bestDistance || distance == bestDistance && id < best) {
+          best = id;
+          bestDistance = distance;
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,98 @@
+package clinic;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Line by line clinic data parser built on string splitting. Kept as the
+ * reference the mapped parser is checked and benchmarked against.
+ */
+public class TextClinicDataParser implements ClinicDataParser {
+
+  @Override
+  public long parse(Path file, ClinicDataHandler handler) throws IOException {
+    long lineCount = 0;
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      String rawLine;
+      while ((rawLine = reader.readLine()) != null) {
+        lineCount++;
+        String line = rawLine.trim();
+        if (line.isEmpty() || line.startsWith("#")) {
+          continue;
+        }
+        try {
+          parseLine(line.split(",\\s*"), handler);
+        } catch (RuntimeException e) {
+          handler.reject(lineCount, rawLine, e);
+        }
+      }
+    }
+    return lineCount;
+  }
+
+  private void parseLine(String[] parts, ClinicDataHandler handler) {
+    switch (parts[0].toLowerCase()) {
+      case "room":
+        // Room, name, type, x1, y1, x2, y2
+        handler.room(parts[1], parts[2], Integer.parseInt(parts[3]), Integer.parseInt(parts[4]),
+            Integer.parseInt(parts[5]), Integer.parseInt(parts[6]));
+        break;
+
+      case "staff":
+        // Staff, name, role, education, npi
+        String[] nameParts = parts[1].split("\\s+");
+        handler.staff(nameParts[0], nameParts.length > 1 ? nameParts[1] : "", parts[2],
+            parts[3], parts.length > 4 ? parts[4] : null);
+        break;
+
+      case "patient":
+        // Patient, name, dob, visitTime, complaint, temperature
+        String[] patientNameParts = parts[1].trim().split("\\s+");
+        String dob = parts[2].trim();
+        LocalDateTime visitTime = null;
+        String complaint = null;
+        double temperature = 0;
+        if (parts.length > 3) {
+          // Read the whole line first, so a bad visit does not leave the patient half added.
+          visitTime = LocalDateTime.parse(parts[3].trim());
+          complaint = parts[4].trim();
+          temperature = Double.parseDouble(parts[5].trim());
+        }
+        handler.patient(patientNameParts[0],
+            patientNameParts.length > 1 ? patientNameParts[1] : "", dob);
+        if (visitTime != null) {
+          handler.visit(visitTime, complaint, temperature);
+        }
+        break;
+
+      case "assign":
+        // Assign, patientName, roomName
+        handler.assign(parts[1].split(" ")[0], parts[1].split(" ")[1], parts[2]);
+        break;
+
+      case "assignstaff":
+        // AssignStaff, patientName, staffName
+        handler.assignStaff(parts[1].split(" ")[0], parts[1].split(" ")[1],
+            parts[2].split(" ")[0], parts[2].split(" ")[1]);
+        break;
+
+      case "deactivatestaff":
+        // DeactivateStaff, staffName
+        handler.deactivateStaff(parts[1].split(" ")[0], parts[1].split(" ")[1]);
+        break;
+
+      case "sendhome":
+        // SendHome, patientName, approvingStaff
+        handler.sendHome(parts[1].split(" ")[0], parts[1].split(" ")[1],
+            parts[2].split(" ")[0], parts[2].split(" ")[1]);
+        break;
+
+      default:
+        handler.unknown(parts[0]);
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package clinic;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Renders the floor plan as square tiles of a fixed size, so a layout of
+ * any size never needs one image covering all of it. Rendered tiles are
+ * kept in a bounded cache, least recently used first out, keyed by tile
+ * and by the version the tile last changed in. Updating to a newer
+ * snapshot only invalidates the tiles the changed rooms reach into.
+ * Exporting writes the plan to a PNG one row of tiles at a time.
+ */
+public class TileRenderer {
+  /**
+   * Default width and height of a tile in pixels.
+   */
+  public static final int DEFAULT_TILE_SIZE = 256;
+  /**
+   * Default number of rendered tiles kept.
+   */
+  public static final int DEFAULT_MAX_TILES = 64;
+
+  private final int tileSize;
+  private final RoomLayout layout;
+  private final Map<TileKey, BufferedImage> cache;
+  // Version each tile last changed in, tiles not listed last changed in baseVersion.
+  private final Map<Long, Long> tileVersions = new HashMap<>();
+  private long baseVersion;
+  private long tilesRendered;
+
+  /**
+   * Creates a renderer with the default tile size and cache size.
+   */
+  public TileRenderer() {
+    this(DEFAULT_TILE_SIZE, DEFAULT_MAX_TILES);
+  }
+
+  /**
+   * Creates a renderer.
+   * @param tileSize Width and height of a tile in pixels.
+   * @param maxTiles Number of rendered tiles kept.
+   */
+  public TileRenderer(int tileSize, int maxTiles) {
+    if (tileSize <= 0 || maxTiles <= 0) {
+      throw new IllegalArgumentException("The tile size and cache size must be positive.");
+    }
+    this.tileSize = tileSize;
+    this.cache = new LinkedHashMap<TileKey, BufferedImage>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<TileKey, BufferedImage> eldest) {
+        return size() > maxTiles;
+      }
+    };
+    BufferedImage probe = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+    Graphics g = probe.getGraphics();
+    this.layout = new RoomLayout(g.getFontMetrics(GraphicsHandler.FONT));
+    g.dispose();
+  }
+
+  /**
+   * Gets the width and height of a tile.
+   * @return Tile size in pixels.
+   */
+  public int getTileSize() {
+    return tileSize;
+  }
+
+  /**
+   * Brings the tiles up to date with a snapshot, invalidating the tiles
+   * that the changed rooms reach into.
+   * @param snapshot Snapshot to render.
+   */
+  public synchronized void update(ClinicSnapshot snapshot) {
+    if (snapshot == layout.getSnapshot()) {
+      return;
+    }
+    List<Rectangle> regions = layout.update(snapshot);
+    if (regions == null) {
+      cache.clear();
+      tileVersions.clear();
+      baseVersion = snapshot.getVersion();
+      return;
+    }
+    for (Rectangle region : regions) {
+      for (int ty = tile(region.y); ty <= tile(region.y + region.height - 1); ty++) {
+        for (int tx = tile(region.x); tx <= tile(region.x + region.width - 1); tx++) {
+          Long old = tileVersions.put(key(tx, ty), snapshot.getVersion());
+          cache.remove(new TileKey(tx, ty, old == null ? baseVersion : old));
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets a rendered tile of the snapshot last updated to, rendering it
+   * only if it is not cached. The image is shared, do not draw on it.
+   * @param tx Column of the tile, the tile's left edge is at tx * tile size.
+   * @param ty Row of the tile, the tile's top edge is at ty * tile size.
+   * @return Tile image.
+   */
+  public synchronized BufferedImage getTile(int tx, int ty) {
+    TileKey key = new TileKey(tx, ty, tileVersions.getOrDefault(key(tx, ty), baseVersion));
+    BufferedImage tile = cache.get(key);
+    if (tile == null) {
+      tile = render(tx, ty);
+      cache.put(key, tile);
+    }
+    return tile;
+  }
+
+  /**
+   * Gets the number of tiles rendered so far, cached tiles not included.
+   * @return Tiles rendered.
+   */
+  public synchronized long getTilesRendered() {
+    return tilesRendered;
+  }
+
+  /**
+   * Gets the area of the plan exported, from the origin to the furthest
+   * point any room is drawn at.
+   * @return Plan area in pixels, at least one pixel across.
+   */
+  public synchronized Rectangle getPlanBounds() {
+    Rectangle bounds = layout.getPlanBounds();
+    return new Rectangle(0, 0, Math.max(1, bounds.x + bounds.width),
+        Math.max(1, bounds.y + bounds.height));
+  }
+
+  /**
+   * Writes the whole plan of a snapshot to a PNG file. Only one row of
+   * tiles is held at a time, so the plan may be far larger than memory.
+   * If writing fails, the partly written file is deleted.
+   * @param snapshot Snapshot to export.
+   * @param file File to write.
+   * @throws IOException If the file cannot be written.
+   */
+  public synchronized void export(ClinicSnapshot snapshot, Path file) throws IOException {
+    update(snapshot);
+    Rectangle plan = getPlanBounds();
+    int columns = tile(plan.width - 1) + 1;
+    int[] row = new int[columns * tileSize];
+    BufferedImage[] strip = new BufferedImage[columns];
+    OutputStream out = Files.newOutputStream(file);
+    try (PngStreamWriter png = new PngStreamWriter(new BufferedOutputStream(out), plan.width,
+        plan.height)) {
+      for (int y = 0; y < plan.height; y++) {
+        int inTile = y % tileSize;
+        if (inTile == 0) {
+          for (int tx = 0; tx < columns; tx++) {
+            strip[tx] = getTile(tx, y / tileSize);
+          }
+        }
+        for (int tx = 0; tx < columns; tx++) {
+          strip[tx].getRGB(0, inTile, tileSize, 1, row, tx * tileSize, tileSize);
+        }
+        png.writeRow(row, 0);
+      }
+    } catch (IOException | RuntimeException | Error e) {
+      try {
+        out.close();
+        Files.deleteIfExists(file);
+      } catch (IOException deleteError) {
+        e.addSuppressed(deleteError);
+      }
+      throw e;
+    }
+  }
+
+  private BufferedImage render(int tx, int ty) {
+    BufferedImage tile = new BufferedImage(tileSize, tileSize, BufferedImage.TYPE_INT_RGB);
+    Graphics g = tile.getGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, tileSize, tileSize);
+    ClinicSnapshot snapshot = layout.getSnapshot();
+    if (snapshot != null) {
+      g.translate(-tx * tileSize, -ty * tileSize);
+      Rectangle area = new Rectangle(tx * tileSize, ty * tileSize, tileSize, tileSize);
+      for (int index : layout.roomsIn(area)) {
+        ClinicSnapshot.RoomState state = snapshot.getRoomStates().get(index);
+        Room room = state.getRoom();
+        GraphicsHandler.paintRoom(g, room.getX1(), room.getY1(), room.getX2() - room.getX1(),
+            room.getY2() - room.getY1(), room.getRoomName(), state.isOccupied(),
+            state.getPatientNames(), state.getStaffNames(), RoomGraphics.DETAIL_FULL);
+      }
+    }
+    g.dispose();
+    tilesRendered++;
+    return tile;
+  }
+
+  private int tile(int coordinate) {
+    return Math.floorDiv(coordinate, tileSize);
+  }
+
+  private static long key(int tx, int ty) {
+    return ((long) tx << 32) | (ty & 0xFFFFFFFFL);
+  }
+
+  /**
+   * A tile as rendered for one version of its contents.
+   */
+  private static final class TileKey {
+    private final int tx;
+    private final int ty;
+    private final long version;
+
+    private TileKey(int tx, int ty, long version) {
+      this.tx = tx;
+      this.ty = ty;
+      this.version = version;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof TileKey)) {
+        return false;
+      }
+      TileKey other = (TileKey) o;
+      return tx == other.tx && ty == other.ty && version == other.version;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(tx, ty, version);
+    }
+  }
+}
@@ -4,10 +4,14 @@ import java.time.LocalDateTime;
 
 /**
  * Setting up our visit record to keep track of patients.
+ * The chief complaint is kept as a code into a complaint dictionary,
+ * or as is for records created without one.
  */
 public class VisitRecord implements InterfaceVisitRecord {
   private LocalDateTime visitTime;
-  private String chiefComplaint;
+  private final String chiefComplaint;
+  private final ComplaintDictionary complaints;
+  private final int complaintCode;
   private double bodyTemperature;
   private boolean visitComplete; 
   
@@ -20,6 +24,28 @@ public class VisitRecord implements InterfaceVisitRecord {
   public VisitRecord(LocalDateTime visitTime, String chiefComplaint, double bodyTemperature) {
     this.visitTime = visitTime;
     this.chiefComplaint = chiefComplaint;
+    this.complaints = null;
+    this.complaintCode = -1;
+    this.bodyTemperature = Math.round(bodyTemperature * 10.0) / 10.0; // Round to one decimal.  
+    this.visitComplete = false; // Defaulting to false.
+  }
+  
+  /**
+   * Creates a visit record whose complaint is already encoded.
+   * @param visitTime Time which the patient visited.
+   * @param complaints Dictionary the complaint code belongs to.
+   * @param complaintCode Code of the chief complaint.
+   * @param bodyTemperature Patient body temperature in C.
+   */
+  public VisitRecord(LocalDateTime visitTime, ComplaintDictionary complaints, 
+      int complaintCode, double bodyTemperature) {
+    if (complaints == null) {
+      throw new IllegalArgumentException("The complaint dictionary cannot be null.");
+    }
+    this.visitTime = visitTime;
+    this.chiefComplaint = null;
+    this.complaints = complaints;
+    this.complaintCode = complaintCode;
     this.bodyTemperature = Math.round(bodyTemperature * 10.0) / 10.0; // Round to one decimal.  
     this.visitComplete = false; // Defaulting to false.
   }
@@ -31,7 +57,7 @@ public class VisitRecord implements InterfaceVisitRecord {
 
   @Override
   public String getChiefComplaint() {
-    return chiefComplaint;
+    return complaints == null ? chiefComplaint : complaints.decode(complaintCode);
   }
 
   @Override
@@ -44,7 +70,7 @@ public class VisitRecord implements InterfaceVisitRecord {
   
   public String toString() {
     return String.format("Visit on %s: Complaint: %s, Temperature: %.1f°C, Completed: %s", 
-        visitTime, chiefComplaint, bodyTemperature, visitComplete ? "Yes" : "No");
+        visitTime, getChiefComplaint(), bodyTemperature, visitComplete ? "Yes" : "No");
   }
 
   @Override
@@ -0,0 +1,626 @@
+package clinic;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append only binary log of every change made to a clinic model, so the
+ * model can be rebuilt after a restart or a crash. Each change is written
+ * as one checksummed record. Records are grouped in memory and flushed to
+ * disk together once enough of them are pending or a short interval has
+ * passed, which keeps fsync calls off the per change path.
+ *
+ * <p>Patients, staff and rooms are referred to by the order they were
+ * added, the same order the model keeps them in. A torn record at the end
+ * of the file, left by a crash during a write, is dropped when the log is
+ * opened. After the model is saved to a {@link BinarySnapshot} the log can
+ * be checkpointed, which empties it and moves it to the snapshot's
+ * generation so it only holds the changes made since.
+ */
+public class WriteAheadLog implements Closeable {
+  /**
+   * Default number of records written before the log is forced to disk.
+   */
+  public static final int DEFAULT_SYNC_BATCH = 256;
+  /**
+   * Default longest time in milliseconds a record waits before being forced to disk.
+   */
+  public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 50;
+
+  private static final int MAGIC = 0x434C5741; // "CLWA"
+  private static final int FORMAT_VERSION = 2;
+  private static final int HEADER_SIZE = 16;
+
+  private static final byte ADD_ROOM = 1;
+  private static final byte ADD_STAFF = 2;
+  private static final byte ADD_PATIENT = 3;
+  private static final byte ACTIVATE_PATIENT = 4;
+  private static final byte DEACTIVATE_PATIENT = 5;
+  private static final byte ACTIVATE_STAFF = 6;
+  private static final byte DEACTIVATE_STAFF = 7;
+  private static final byte ASSIGN_ROOM = 8;
+  private static final byte ASSIGN_STAFF = 9;
+  private static final byte UNASSIGN_STAFF = 10;
+  private static final byte UNASSIGN_STAFF_FROM_PATIENT = 11;
+  private static final byte ADD_VISIT = 12;
+  private static final byte CLEAR = 13;
+
+  private static final byte REF_NULL = 0;
+  private static final byte REF_INDEX = 1;
+  private static final byte REF_INLINE = 2;
+
+  private static final byte CLINICAL_STAFF = 1;
+  private static final byte NON_CLINICAL_STAFF = 2;
+
+  private final FileChannel channel;
+  private final int syncBatch;
+  private final ScheduledExecutorService flusher;
+  private final ByteArrayOutputStream recordBytes = new ByteArrayOutputStream(128);
+  private final DataOutputStream record = new DataOutputStream(recordBytes);
+  private final ByteArrayOutputStream pendingBytes = new ByteArrayOutputStream(8192);
+  private final DataOutputStream pending = new DataOutputStream(pendingBytes);
+  private final CRC32 crc = new CRC32();
+  private int pendingRecords;
+  private long generation;
+  private boolean replaying;
+  private boolean closed;
+
+  // Entities in the order they were added, mirroring the model's lists.
+  private final List<Patient> patients = new ArrayList<>();
+  private final List<Staff> staff = new ArrayList<>();
+  private final List<Room> rooms = new ArrayList<>();
+  private final Map<Patient, Integer> patientIndexes = new IdentityHashMap<>();
+  private final Map<Staff, Integer> staffIndexes = new IdentityHashMap<>();
+  private final Map<Room, Integer> roomIndexes = new IdentityHashMap<>();
+
+  /**
+   * Opens a log with the default group commit settings.
+   * @param path Log file, created if missing.
+   * @throws IOException If the file cannot be opened or is not a clinic log.
+   */
+  public WriteAheadLog(Path path) throws IOException {
+    this(path, DEFAULT_SYNC_BATCH, DEFAULT_SYNC_INTERVAL_MILLIS);
+  }
+
+  /**
+   * Opens a log, creating it if needed and dropping any torn record at its end.
+   * @param path Log file, created if missing.
+   * @param syncBatch Records written before the log is forced to disk, 1 forces every record.
+   * @param syncIntervalMillis Longest time a record waits before being forced to disk.
+   * @throws IOException If the file cannot be opened or is not a clinic log.
+   */
+  public WriteAheadLog(Path path, int syncBatch, long syncIntervalMillis) throws IOException {
+    if (syncBatch <= 0 || syncIntervalMillis <= 0) {
+      throw new IllegalArgumentException("The sync batch and interval must be positive.");
+    }
+    this.syncBatch = syncBatch;
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (channel.size() == 0) {
+        writeHeader(0);
+      }
+      long end = validEnd();
+      if (end < channel.size()) {
+        System.err.println("Dropping " + (channel.size() - end)
+            + " bytes of incomplete records from the end of " + path);
+        channel.truncate(end);
+      }
+      channel.position(end);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "clinic-wal");
+      thread.setDaemon(true);
+      return thread;
+    });
+    flusher.scheduleWithFixedDelay(this::syncQuietly, syncIntervalMillis, syncIntervalMillis,
+        TimeUnit.MILLISECONDS);
+  }
+
+  private void writeHeader(long newGeneration) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+        .putInt(MAGIC).putInt(FORMAT_VERSION).putLong(newGeneration);
+    header.flip();
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+    channel.force(true);
+    generation = newGeneration;
+  }
+
+  /**
+   * Gets the generation of the log, the snapshot it continues from.
+   * @return Generation, 0 for a log started from an empty model.
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Rebuilds a model by applying every record in the log to it. The model
+   * should hold the snapshot of the log's generation, or be empty for
+   * generation 0, and already have this log attached. Changes made while
+   * replaying are not logged again.
+   * @param model Model to rebuild.
+   * @return Number of records applied.
+   * @throws IOException If the log cannot be read.
+   */
+  public synchronized int replay(InterfaceClinicModel model) throws IOException {
+    int applied = 0;
+    replaying = true;
+    seed(model);
+    model.beginBulkLoad();
+    try {
+      // Not closed afterwards, closing the stream would close the channel too.
+      DataInputStream in = new DataInputStream(new BufferedInputStream(
+          Channels.newInputStream(channel.position(HEADER_SIZE)), 1 << 16));
+      byte[] payload;
+      while ((payload = readRecord(in)) != null) {
+        try {
+          apply(model, new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (RuntimeException e) {
+          // The change failed the first time too, replay the rest regardless.
+          System.err.println("Skipping log record " + applied + ": " + e.getMessage());
+        }
+        applied++;
+      }
+    } finally {
+      replaying = false;
+      channel.position(channel.size());
+      model.commitBulkLoad();
+    }
+    return applied;
+  }
+
+  /**
+   * Empties the log after the model was saved to a snapshot. Changes still
+   * waiting to be written are dropped, the snapshot already holds them.
+   * @param model Model the snapshot was taken from.
+   * @param newGeneration Generation of the snapshot.
+   * @throws IOException If the log cannot be reset.
+   */
+  public synchronized void checkpoint(InterfaceClinicModel model, long newGeneration)
+      throws IOException {
+    if (closed) {
+      throw new IllegalStateException("The write-ahead log is closed.");
+    }
+    pendingBytes.reset();
+    pendingRecords = 0;
+    channel.truncate(HEADER_SIZE);
+    writeHeader(newGeneration);
+    channel.position(HEADER_SIZE);
+    seed(model);
+  }
+
+  // Numbers the model's entities the way the model lists them.
+  private void seed(InterfaceClinicModel model) {
+    forgetEntities();
+    model.getAllRooms().forEach(room -> register(room, rooms, roomIndexes));
+    model.getAllStaff().forEach(member -> register(member, staff, staffIndexes));
+    model.getAllPatients().forEach(patient -> register(patient, patients, patientIndexes));
+  }
+
+  /**
+   * Writes every pending record to disk and forces it to the storage device.
+   * @throws IOException If the write fails.
+   */
+  public synchronized void sync() throws IOException {
+    if (closed || pendingBytes.size() == 0) {
+      return;
+    }
+    ByteBuffer buffer = ByteBuffer.wrap(pendingBytes.toByteArray());
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    channel.force(false);
+    pendingBytes.reset();
+    pendingRecords = 0;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    flusher.shutdown();
+    try {
+      sync();
+    } finally {
+      closed = true;
+      channel.close();
+    }
+  }
+
+  private void syncQuietly() {
+    try {
+      sync();
+    } catch (IOException e) {
+      System.err.println("Error writing the write-ahead log: " + e.getMessage());
+    }
+  }
+
+  synchronized void logAddRoom(Room room) {
+    start(ADD_ROOM);
+    writeRoom(room);
+    register(room, rooms, roomIndexes);
+    finish();
+  }
+
+  synchronized void logAddStaff(Staff member) {
+    start(ADD_STAFF);
+    writeStaff(member);
+    register(member, staff, staffIndexes);
+    finish();
+  }
+
+  synchronized void logAddPatient(Patient patient) {
+    start(ADD_PATIENT);
+    writePatient(patient);
+    register(patient, patients, patientIndexes);
+    finish();
+  }
+
+  synchronized void logActivatePatient(Patient patient) {
+    start(ACTIVATE_PATIENT);
+    writePatient(patient);
+    finish();
+  }
+
+  synchronized void logDeactivatePatient(Patient patient, ClinicalStaff approver) {
+    start(DEACTIVATE_PATIENT);
+    writePatient(patient);
+    writeStaff(approver);
+    finish();
+  }
+
+  synchronized void logActivateStaff(Staff member) {
+    start(ACTIVATE_STAFF);
+    writeStaff(member);
+    finish();
+  }
+
+  synchronized void logDeactivateStaff(Staff member) {
+    start(DEACTIVATE_STAFF);
+    writeStaff(member);
+    finish();
+  }
+
+  synchronized void logAssignRoom(Patient patient, Room room) {
+    start(ASSIGN_ROOM);
+    writePatient(patient);
+    writeRoom(room);
+    finish();
+  }
+
+  synchronized void logAssignStaff(ClinicalStaff member, Patient patient) {
+    start(ASSIGN_STAFF);
+    writeStaff(member);
+    writePatient(patient);
+    finish();
+  }
+
+  synchronized void logUnassignStaff(ClinicalStaff member) {
+    start(UNASSIGN_STAFF);
+    writeStaff(member);
+    finish();
+  }
+
+  synchronized void logUnassignStaffFromPatient(ClinicalStaff member, Patient patient) {
+    start(UNASSIGN_STAFF_FROM_PATIENT);
+    writeStaff(member);
+    writePatient(patient);
+    finish();
+  }
+
+  synchronized void logAddVisit(Patient patient, LocalDateTime visitTime,
+      String chiefComplaint, double bodyTemperature) {
+    start(ADD_VISIT);
+    writePatient(patient);
+    try {
+      record.writeBoolean(visitTime != null);
+      if (visitTime != null) {
+        record.writeLong(visitTime.toEpochSecond(ZoneOffset.UTC));
+        record.writeInt(visitTime.getNano());
+      }
+      writeString(chiefComplaint);
+      record.writeDouble(bodyTemperature);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not encode a log record.", e);
+    }
+    finish();
+  }
+
+  synchronized void logClear() {
+    start(CLEAR);
+    forgetEntities();
+    finish();
+  }
+
+  private void start(byte opcode) {
+    if (closed) {
+      throw new IllegalStateException("The write-ahead log is closed.");
+    }
+    recordBytes.reset();
+    try {
+      record.writeByte(opcode);
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not encode a log record.", e);
+    }
+  }
+
+  // Frames the record as length, payload, checksum and queues it for the next sync.
+  private void finish() {
+    if (replaying) {
+      return;
+    }
+    byte[] payload = recordBytes.toByteArray();
+    crc.reset();
+    crc.update(payload, 0, payload.length);
+    try {
+      pending.writeInt(payload.length);
+      pending.write(payload);
+      pending.writeInt((int) crc.getValue());
+      if (++pendingRecords >= syncBatch) {
+        sync();
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not write to the write-ahead log.", e);
+    }
+  }
+
+  private void forgetEntities() {
+    patients.clear();
+    staff.clear();
+    rooms.clear();
+    patientIndexes.clear();
+    staffIndexes.clear();
+    roomIndexes.clear();
+  }
+
+  private static <T> void register(T entity, List<T> entities, Map<T, Integer> indexes) {
+    indexes.putIfAbsent(entity, entities.size());
+    entities.add(entity);
+  }
+
+  private void writeRoom(Room room) {
+    try {
+      if (!writeReference(room, roomIndexes)) {
+        record.writeInt(room.getX1());
+        record.writeInt(room.getY1());
+        record.writeInt(room.getX2());
+        record.writeInt(room.getY2());
+        writeString(room.getRoomType());
+        writeString(room.getRoomName());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not encode a log record.", e);
+    }
+  }
+
+  private void writeStaff(Staff member) {
+    try {
+      if (writeReference(member, staffIndexes)) {
+        return;
+      }
+      if (member instanceof ClinicalStaff) {
+        ClinicalStaff clinical = (ClinicalStaff) member;
+        record.writeByte(CLINICAL_STAFF);
+        writeString(clinical.getFirstName());
+        writeString(clinical.getLastName());
+        writeString(clinical.getEducationLevel());
+        writeString(clinical.getNpi());
+        writeString(clinical.getRole());
+      } else if (member instanceof NonClinicalStaff) {
+        NonClinicalStaff nonClinical = (NonClinicalStaff) member;
+        record.writeByte(NON_CLINICAL_STAFF);
+        writeString(nonClinical.getFirstName());
+        writeString(nonClinical.getLastName());
+        writeString(nonClinical.getEducationLevel());
+        writeString(nonClinical.getCprLevel());
+        writeString(nonClinical.getRole());
+      } else {
+        throw new IllegalArgumentException("Unsupported staff type: " + member.getClass());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not encode a log record.", e);
+    }
+  }
+
+  private void writePatient(Patient patient) {
+    try {
+      if (!writeReference(patient, patientIndexes)) {
+        writeString(patient.getFirstName());
+        writeString(patient.getLastName());
+        writeString(patient.getDob());
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException("Could not encode a log record.", e);
+    }
+  }
+
+  // Writes a reference tag, returns false if the caller has to write the entity itself.
+  private <T> boolean writeReference(T entity, Map<T, Integer> indexes) throws IOException {
+    if (entity == null) {
+      record.writeByte(REF_NULL);
+      return true;
+    }
+    Integer index = indexes.get(entity);
+    if (index != null) {
+      record.writeByte(REF_INDEX);
+      record.writeInt(index);
+      return true;
+    }
+    record.writeByte(REF_INLINE);
+    return false;
+  }
+
+  private void writeString(String value) throws IOException {
+    record.writeBoolean(value != null);
+    if (value != null) {
+      record.writeUTF(value);
+    }
+  }
+
+  // Reads one framed record, or null at the end of the valid records.
+  private byte[] readRecord(DataInputStream in) throws IOException {
+    int length;
+    try {
+      length = in.readInt();
+    } catch (EOFException e) {
+      return null;
+    }
+    if (length <= 0 || length > channel.size()) {
+      return null;
+    }
+    byte[] payload = new byte[length];
+    try {
+      in.readFully(payload);
+      int checksum = in.readInt();
+      crc.reset();
+      crc.update(payload, 0, length);
+      return checksum == (int) crc.getValue() ? payload : null;
+    } catch (EOFException e) {
+      return null;
+    }
+  }
+
+  // Checks the header and finds the end of the last complete record.
+  private long validEnd() throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(
+        Channels.newInputStream(channel.position(0)), 1 << 16));
+    try {
+      if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+        throw new IOException("Not a clinic write-ahead log.");
+      }
+      generation = in.readLong();
+    } catch (EOFException e) {
+      throw new IOException("Not a clinic write-ahead log.", e);
+    }
+    long end = HEADER_SIZE;
+    byte[] payload;
+    while ((payload = readRecord(in)) != null) {
+      end += Integer.BYTES + payload.length + Integer.BYTES;
+    }
+    return end;
+  }
+
+  private void apply(InterfaceClinicModel model, DataInputStream in) throws IOException {
+    byte opcode = in.readByte();
+    switch (opcode) {
+      case ADD_ROOM:
+        model.addRoom(readRoom(in));
+        break;
+      case ADD_STAFF:
+        model.addStaff(readStaff(in));
+        break;
+      case ADD_PATIENT:
+        model.addPatient(readPatient(in));
+        break;
+      case ACTIVATE_PATIENT:
+        model.activatePatient(readPatient(in));
+        break;
+      case DEACTIVATE_PATIENT:
+        model.deactivatePatient(readPatient(in), (ClinicalStaff) readStaff(in));
+        break;
+      case ACTIVATE_STAFF:
+        model.activateStaff(readStaff(in));
+        break;
+      case DEACTIVATE_STAFF:
+        model.deactivateStaff(readStaff(in));
+        break;
+      case ASSIGN_ROOM:
+        Patient roomPatient = readPatient(in);
+        model.assignPatientToRoom(roomPatient, readRoom(in));
+        break;
+      case ASSIGN_STAFF:
+        ClinicalStaff assigned = (ClinicalStaff) readStaff(in);
+        model.assignClinicalStaffToPatient(assigned, readPatient(in));
+        break;
+      case UNASSIGN_STAFF:
+        model.unassignClinicalStaff((ClinicalStaff) readStaff(in));
+        break;
+      case UNASSIGN_STAFF_FROM_PATIENT:
+        ClinicalStaff unassigned = (ClinicalStaff) readStaff(in);
+        model.unassignClinicalStaffFromPatient(unassigned, readPatient(in));
+        break;
+      case ADD_VISIT:
+        Patient visitPatient = readPatient(in);
+        LocalDateTime visitTime = in.readBoolean()
+            ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC) : null;
+        model.addVisitRecord(visitPatient, visitTime, readString(in), in.readDouble());
+        break;
+      case CLEAR:
+        model.clearRecords();
+        break;
+      default:
+        throw new IllegalStateException("Unknown log record type " + opcode);
+    }
+  }
+
+  private Room readRoom(DataInputStream in) throws IOException {
+    byte tag = in.readByte();
+    if (tag != REF_INLINE) {
+      return tag == REF_NULL ? null : rooms.get(in.readInt());
+    }
+    int x1 = in.readInt();
+    int y1 = in.readInt();
+    int x2 = in.readInt();
+    int y2 = in.readInt();
+    String roomType = readString(in);
+    return new Room(x1, y1, x2, y2, roomType, readString(in));
+  }
+
+  private Staff readStaff(DataInputStream in) throws IOException {
+    byte tag = in.readByte();
+    if (tag != REF_INLINE) {
+      return tag == REF_NULL ? null : staff.get(in.readInt());
+    }
+    byte type = in.readByte();
+    String firstName = readString(in);
+    String lastName = readString(in);
+    String educationLevel = readString(in);
+    String detail = readString(in);
+    String role = readString(in);
+    return type == CLINICAL_STAFF
+        ? new ClinicalStaff(firstName, lastName, educationLevel, detail, role)
+        : new NonClinicalStaff(firstName, lastName, educationLevel, detail, role);
+  }
+
+  private Patient readPatient(DataInputStream in) throws IOException {
+    byte tag = in.readByte();
+    if (tag != REF_INLINE) {
+      return tag == REF_NULL ? null : patients.get(in.readInt());
+    }
+    String firstName = readString(in);
+    String lastName = readString(in);
+    return new Patient(firstName, lastName, readString(in));
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+}
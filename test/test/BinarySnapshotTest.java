@@ -0,0 +1,106 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import clinic.BinarySnapshot;
+import clinic.ClinicModel;
+import clinic.ClinicalStaff;
+import clinic.NonClinicalStaff;
+import clinic.Patient;
+import clinic.Room;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing saving and restoring a model through a binary snapshot.
+ */
+public class BinarySnapshotTest {
+  private Path snapshotFile;
+  private ClinicModel model;
+
+  // Models made by a test, their render threads are stopped after it.
+  private final List<ClinicModel> models = new ArrayList<>();
+
+  private ClinicModel newModel() {
+    ClinicModel model = new ClinicModel();
+    models.add(model);
+    return model;
+  }
+
+  /**
+   * Creating a model with every kind of state in it.
+   */
+  @Before
+  public void setUp() throws IOException {
+    snapshotFile = Files.createTempFile("clinic", ".snapshot");
+    model = newModel();
+    Room waiting = new Room(0, 0, 10, 10, "waiting", "Waiting Room");
+    model.addRoom(waiting);
+    model.addRoom(new Room(11, 11, 21, 21, "exam", "Exam Room 1"));
+    ClinicalStaff doctor = new ClinicalStaff("Alice", "Smith", "MD", "1234567890", "Doctor");
+    model.addStaff(doctor);
+    model.addStaff(new NonClinicalStaff("Bob", "Brown", "BA", "Basic", "Janitor"));
+    model.deactivateStaff(model.getAllStaff().get(1));
+    Patient patient = new Patient("John", "Doe", "1980-01-01");
+    model.addPatient(patient);
+    model.assignPatientToRoom(patient, waiting);
+    model.assignClinicalStaffToPatient(doctor, patient);
+    model.addVisitRecord(patient, LocalDateTime.of(2024, 5, 1, 9, 30), "Flu", 38.2);
+    model.addVisitRecord(patient, LocalDateTime.of(2024, 6, 1, 9, 30), "Flu", 37.1);
+    Patient other = new Patient("Jane", "Doe", "1990-02-02");
+    model.addPatient(other);
+    model.deactivatePatient(other, doctor);
+  }
+
+  /**
+   * Stopping the models and removing the snapshot file.
+   */
+  @After
+  public void tearDown() throws IOException {
+    for (ClinicModel model : models) {
+      model.shutdown();
+    }
+    Files.deleteIfExists(snapshotFile);
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    BinarySnapshot.write(model, snapshotFile, 7);
+    ClinicModel restored = newModel();
+    assertEquals("Generation should be kept", 7, BinarySnapshot.read(snapshotFile, restored));
+
+    assertEquals("Rooms should be restored", 2, restored.getAllRooms().size());
+    assertEquals("Staff should be restored", 2, restored.getAllStaff().size());
+    assertFalse("Staff status should be restored", restored.getAllStaff().get(1).isActive());
+    Patient patient = restored.findPatientByName("John", "Doe");
+    assertEquals("Visits should be restored", 2, patient.getVisitRecords().size());
+    assertEquals("Complaints should be restored", Integer.valueOf(2),
+        restored.getComplaintCounts().get("Flu"));
+    assertEquals("Staff assignment should be restored", 1,
+        restored.getClinicalStaffAssignedToPatient(patient).size());
+    assertTrue("Room occupant should be restored",
+        restored.findRoomByName("Waiting Room").isOccupied());
+    Patient other = restored.findPatientByName("Jane", "Doe");
+    assertFalse("Deactivation should be restored", other.isActive());
+    assertTrue("Approver should be the restored staff member",
+        restored.getDeactivationApprover(other) == restored.getAllStaff().get(0));
+  }
+
+  @Test(expected = IOException.class)
+  public void testDamagedSnapshotRejected() throws IOException {
+    BinarySnapshot.write(model, snapshotFile, 1);
+    byte[] bytes = Files.readAllBytes(snapshotFile);
+    bytes[bytes.length / 2] ^= 0x55;
+    Files.write(snapshotFile, bytes);
+    BinarySnapshot.read(snapshotFile, newModel());
+  }
+}
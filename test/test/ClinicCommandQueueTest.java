@@ -0,0 +1,173 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import clinic.ClinicCommandQueue;
+import clinic.ClinicModel;
+import clinic.Patient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing the single writer command queue in front of the model.
+ */
+public class ClinicCommandQueueTest {
+  private ClinicModel model;
+  private ClinicCommandQueue queue;
+
+  /**
+   * Creating a model with a queue in front of it.
+   */
+  @Before
+  public void setUp() {
+    model = new ClinicModel();
+    queue = new ClinicCommandQueue(model, 16, 4);
+  }
+
+  /**
+   * Stopping the writer and render threads.
+   */
+  @After
+  public void tearDown() {
+    queue.shutdown(1000);
+    model.shutdown();
+  }
+
+  @Test
+  public void testCommandsAppliedInOrder() throws Exception {
+    List<Long> sequences = new ArrayList<>();
+    queue.setListener((sequence, description, error) -> sequences.add(sequence));
+    CompletableFuture<Void> last = null;
+    for (int i = 0; i < 50; i++) {
+      Patient patient = new Patient("Patient" + i, "Doe", "1990-01-01");
+      last = queue.execute("Add patient", m -> m.addPatient(patient));
+    }
+    last.get(5, TimeUnit.SECONDS);
+
+    assertEquals("All patients should be added", 50, model.getAllPatients().size());
+    for (int i = 0; i < 50; i++) {
+      assertEquals("Patients should be added in submit order",
+          "Patient" + i, model.getAllPatients().get(i).getFirstName());
+      assertEquals("Sequence numbers should count up", Long.valueOf(i + 1), sequences.get(i));
+    }
+  }
+
+  @Test
+  public void testFailedCommandDoesNotStopOthers() throws Exception {
+    CompletableFuture<Object> failed = queue.submit("Fail", m -> {
+      throw new IllegalArgumentException("Bad command");
+    });
+    CompletableFuture<Integer> count = queue.submit("Count", m -> m.getAllPatients().size());
+
+    assertEquals("Later commands should still run", Integer.valueOf(0),
+        count.get(5, TimeUnit.SECONDS));
+    try {
+      failed.get(5, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      assertTrue("Failure should be reported",
+          e.getCause() instanceof IllegalArgumentException);
+      return;
+    }
+    throw new AssertionError("The failed command should complete exceptionally.");
+  }
+
+  @Test
+  public void testErrorFailsCommandAfterCommit() throws Exception {
+    CompletableFuture<Void> added = queue.execute("Add",
+        m -> m.addPatient(new Patient("Ann", "Blue", "1980-04-04")));
+    CompletableFuture<Void> crashed = queue.execute("Crash", m -> {
+      throw new StackOverflowError();
+    });
+    try {
+      crashed.get(5, TimeUnit.SECONDS);
+      fail("The crashed command should complete exceptionally");
+    } catch (ExecutionException e) {
+      assertTrue("The error should be reported", e.getCause() instanceof StackOverflowError);
+    }
+    added.get(5, TimeUnit.SECONDS);
+    assertEquals("The batch should still be committed", 1,
+        model.getSnapshot().getPatients().size());
+  }
+
+  @Test
+  public void testTimedOutShutdownStillSettlesQueuedCommands() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    queue.execute("Block", m -> await(release));
+    CompletableFuture<Void> queued = queue.execute("Add",
+        m -> m.addPatient(new Patient("Ann", "Blue", "1980-04-04")));
+    assertFalse("The blocked writer should not stop in time", queue.shutdown(50));
+    release.countDown();
+    queued.get(5, TimeUnit.SECONDS);
+    assertEquals("A command queued before the shutdown should be applied", 1,
+        model.getAllPatients().size());
+  }
+
+  @Test
+  public void testSubmitWaitingForRoomFailsWhenWriterStops() throws Exception {
+    ClinicCommandQueue small = new ClinicCommandQueue(model, 1, 1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch started = new CountDownLatch(1);
+    small.execute("Crash", m -> {
+      started.countDown();
+      await(release);
+      throw new StackOverflowError();
+    });
+    assertTrue("The writer should pick up the first command", started.await(5, TimeUnit.SECONDS));
+    CompletableFuture<Void> queued = small.execute("Queued", m -> m.clearRecords());
+    CompletableFuture<CompletableFuture<Void>> waiting = new CompletableFuture<>();
+    Thread submitter = new Thread(() -> {
+      try {
+        waiting.complete(small.execute("Waiting", m -> m.clearRecords()));
+      } catch (IllegalStateException e) {
+        waiting.completeExceptionally(e);
+      }
+    });
+    submitter.start();
+    while (submitter.getState() != Thread.State.TIMED_WAITING
+        && submitter.getState() != Thread.State.WAITING) {
+      Thread.sleep(1); // Until the submit is waiting for room in the full queue.
+    }
+    release.countDown();
+    assertFailed("The queued command should be failed", queued);
+    try {
+      assertFailed("The waiting command should be failed", waiting.get(5, TimeUnit.SECONDS));
+    } catch (ExecutionException e) {
+      assertTrue("The waiting submit should be refused",
+          e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void assertFailed(String message, CompletableFuture<?> future)
+      throws Exception {
+    try {
+      future.get(5, TimeUnit.SECONDS);
+      fail(message);
+    } catch (ExecutionException e) {
+      assertTrue(message, e.getCause() instanceof IllegalStateException);
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testSubmitAfterShutdown() {
+    queue.shutdown(1000);
+    queue.execute("Late", m -> m.clearRecords());
+  }
+}
@@ -0,0 +1,177 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import clinic.ClinicDataFollower;
+import clinic.ClinicModel;
+import clinic.Patient;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing that the follower applies lines as they are appended and
+ * carries on where it left off.
+ */
+public class ClinicDataFollowerTest {
+  private Path dir;
+  private Path feed;
+  private Path offsets;
+  private ClinicModel model;
+  private ClinicDataFollower follower;
+
+  /**
+   * Creating an empty feed.
+   */
+  @Before
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("clinic");
+    feed = dir.resolve("feed.txt");
+    offsets = dir.resolve("feed.offset");
+    Files.createFile(feed);
+    model = new ClinicModel();
+  }
+
+  /**
+   * Stopping the follower and removing the files.
+   */
+  @After
+  public void tearDown() throws IOException {
+    if (follower != null) {
+      follower.stop(1000);
+    }
+    model.shutdown();
+    try (Stream<Path> files = Files.walk(dir)) {
+      for (Path path : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+
+  private ClinicDataFollower follow(Path source) throws IOException {
+    return new ClinicDataFollower(model, source, offsets, Runnable::run, 10);
+  }
+
+  private static void append(Path file, String text) throws IOException {
+    Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+  }
+
+  private static void await(String message, BooleanSupplier condition) {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean()) {
+      assertTrue(message, System.currentTimeMillis() < deadline);
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  @Test
+  public void testAppliesAppendedLines() throws IOException {
+    follower = follow(feed);
+    append(feed, "Room, Waiting Room, Waiting, 10, 20, 30, 40\nPatient, Jane Doe, 1990-05-14\n");
+    await("Appended lines should be applied",
+        () -> model.findPatientByName("Jane", "Doe") != null);
+    append(feed, "Patient, Mark Lee, 1985-11-23\nPatient, Ann");
+    await("Complete lines should be applied", () -> follower.getLineNumber() == 3);
+    assertNull("A line without its line break should wait", model.findPatientByName("Ann", ""));
+    append(feed, " Blue, 1980-04-04\n");
+    await("The finished line should be applied",
+        () -> model.findPatientByName("Ann", "Blue") != null);
+    assertEquals("Offset should reach the end of the file", Files.size(feed), follower.getOffset());
+  }
+
+  @Test
+  public void testCarriesOnAfterRestart() throws IOException {
+    follower = follow(feed);
+    append(feed, "Patient, Jane Doe, 1990-05-14\nBad line\n");
+    await("First lines should be applied", () -> follower.getLineNumber() == 2);
+    follower.stop(1000);
+    append(feed, "Patient, Mark Lee, 1985-11-23\n");
+    model.shutdown();
+    model = new ClinicModel();
+    follower = follow(feed);
+    // The line number moves after the line is applied, so wait on it rather than the patient.
+    await("Line numbers should carry on", () -> follower.getLineNumber() == 3);
+    assertNotNull("Lines added while stopped should be applied",
+        model.findPatientByName("Mark", "Lee"));
+    assertNull("Lines applied before the restart should not be applied again",
+        model.findPatientByName("Jane", "Doe"));
+  }
+
+  @Test
+  public void testFollowsRotatingFiles() throws IOException {
+    Path feeds = Files.createDirectory(dir.resolve("feeds"));
+    append(feeds.resolve("2024-10-10.txt"), "Patient, Jane Doe, 1990-05-14\n");
+    follower = follow(feeds);
+    await("The first file should be applied",
+        () -> model.findPatientByName("Jane", "Doe") != null);
+    append(feeds.resolve("2024-10-10.txt"), "Patient, Ann Blue, 1980-04-04");
+    append(feeds.resolve("2024-10-11.txt"), "Patient, Mark Lee, 1985-11-23\n");
+    await("The next file should be applied",
+        () -> model.findPatientByName("Mark", "Lee") != null);
+    assertNotNull("The unfinished last line of a rotated file should be applied",
+        model.findPatientByName("Ann", "Blue"));
+    assertEquals("The follower should be on the newest file",
+        feeds.resolve("2024-10-11.txt"), follower.getCurrentFile());
+  }
+
+  @Test
+  public void testStopFinishesRunningBatch() throws IOException, InterruptedException {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    model.shutdown();
+    model = new ClinicModel() {
+      @Override
+      public void addPatient(Patient patient) {
+        started.countDown();
+        try {
+          release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        super.addPatient(patient);
+      }
+    };
+    follower = new ClinicDataFollower(model, feed, offsets, r -> new Thread(r).start(), 10);
+    append(feed, "Patient, Jane Doe, 1990-05-14\n");
+    assertTrue("The batch should start", started.await(5, TimeUnit.SECONDS));
+    CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(release::countDown);
+    assertTrue("The follower should stop once the batch is done", follower.stop(5000));
+    assertNotNull("The running batch should be applied",
+        model.findPatientByName("Jane", "Doe"));
+    follower = follow(feed);
+    assertEquals("The offset of the finished batch should be saved", Files.size(feed),
+        follower.getOffset());
+  }
+
+  @Test
+  public void testModelFollowsFeed() throws IOException {
+    model.startFollowing(feed.toString(), offsets.toString());
+    try {
+      append(feed, "Patient, Jane Doe, 1990-05-14\n");
+      await("The model should apply appended lines",
+          () -> model.getSnapshot().getPatients().size() == 1);
+    } finally {
+      model.stopFollowing();
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package test;
+
+import clinic.ClinicDataHandler;
+import clinic.ClinicDataParser;
+import clinic.MappedClinicDataParser;
+import clinic.ParallelClinicDataParser;
+import clinic.TextClinicDataParser;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Compares the clinic data parsers on a generated file.
+ * Run with the number of lines as the only argument, 10 million by default.
+ * Both parsers feed a handler that only counts, so the numbers are parse
+ * time and not model time.
+ */
+public class ClinicDataParserBenchmark {
+  private static final int WARMUP_RUNS = 2;
+  private static final int MEASURED_RUNS = 3;
+
+  /**
+   * Runs the benchmark.
+   * @param args Optional number of lines to generate.
+   * @throws IOException If the temporary file cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    long lines = args.length > 0 ? Long.parseLong(args[0]) : 10_000_000L;
+    Path file = Files.createTempFile("clinic-bench", ".txt");
+    try {
+      generate(file, lines);
+      System.out.printf("%d lines, %.1f MB%n", lines, Files.size(file) / 1e6);
+      run("text", new TextClinicDataParser(), file);
+      run("mapped", new MappedClinicDataParser(), file);
+      run("parallel", new ParallelClinicDataParser(), file);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static void generate(Path file, long lines) throws IOException {
+    try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      out.write("Room, Waiting Room, Waiting, 10, 20, 30, 40\n");
+      out.write("Staff, Dr. John Smith, Doctor, PhD, 123456789\n");
+      for (long i = 2; i < lines; i++) {
+        switch ((int) (i % 4)) {
+          case 0:
+            out.write("Patient, First" + i + " Last" + i + ", 1990-05-14, 2024-10-10T12:30, "
+                + "flu, 38.2\n");
+            break;
+          case 1:
+            out.write("Assign, First" + (i - 1) + " Last" + (i - 1) + ", Waiting Room\n");
+            break;
+          case 2:
+            out.write("AssignStaff, First" + (i - 2) + " Last" + (i - 2) + ", Dr. John\n");
+            break;
+          default:
+            out.write("# comment " + i + "\n");
+        }
+      }
+    }
+  }
+
+  private static void run(String name, ClinicDataParser parser, Path file) throws IOException {
+    CountingHandler handler = new CountingHandler();
+    for (int i = 0; i < WARMUP_RUNS; i++) {
+      parser.parse(file, handler);
+    }
+    long best = Long.MAX_VALUE;
+    long lines = 0;
+    for (int i = 0; i < MEASURED_RUNS; i++) {
+      handler.count = 0;
+      long start = System.nanoTime();
+      lines = parser.parse(file, handler);
+      best = Math.min(best, System.nanoTime() - start);
+    }
+    System.out.printf("%-8s best of %d: %8.1f ms, %,.0f lines/sec (%d directives seen)%n",
+        name, MEASURED_RUNS, best / 1e6, lines / (best / 1e9), handler.count);
+  }
+
+  /**
+   * Handler that only counts calls, standing in for the model.
+   */
+  private static class CountingHandler implements ClinicDataHandler {
+    private long count;
+
+    @Override
+    public void room(String roomName, String roomType, int x1, int y1, int x2, int y2) {
+      count++;
+    }
+
+    @Override
+    public void staff(String firstName, String lastName, String role, String educationLevel,
+        String npi) {
+      count++;
+    }
+
+    @Override
+    public void patient(String firstName, String lastName, String dob) {
+      count++;
+    }
+
+    @Override
+    public void visit(LocalDateTime visitTime, String chiefComplaint, double temperature) {
+      count++;
+    }
+
+    @Override
+    public void assign(String firstName, String lastName, String roomName) {
+      count++;
+    }
+
+    @Override
+    public void assignStaff(String patientFirstName, String patientLastName,
+        String staffFirstName, String staffLastName) {
+      count++;
+    }
+
+    @Override
+    public void deactivateStaff(String firstName, String lastName) {
+      count++;
+    }
+
+    @Override
+    public void sendHome(String patientFirstName, String patientLastName,
+        String staffFirstName, String staffLastName) {
+      count++;
+    }
+
+    @Override
+    public void unknown(String directive) {
+      count++;
+    }
+  }
+}
@@ -7,14 +7,25 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import clinic.ClinicModel;
+import clinic.ClinicSnapshot;
 import clinic.ClinicalStaff;
+import clinic.InterfaceVisitRecord;
+import clinic.LoadReport;
 import clinic.Patient;
 import clinic.Room;
 import clinic.Staff;
+import clinic.TileRenderer;
 import clinic.VisitRecord;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -59,6 +70,14 @@ public class ClinicModelTest {
     model.addStaff(doctor2);
     
   }
+  
+  /**
+   * Stopping the render thread.
+   */
+  @After
+  public void tearDown() {
+    model.shutdown();
+  }
 
   @Test
   public void testAddAndRetrieveRoom() {
@@ -139,6 +158,16 @@ public class ClinicModelTest {
         model.findPatientByName("Noone", "Nowhere")); 
   }
   
+  @Test
+  public void testFindPatientByDuplicateName() {
+    Patient duplicate = new Patient("Jane", "Doe", "2000-03-03");
+    model.addPatient(duplicate);
+    assertEquals("First registered patient should be found", 
+        patient2, model.findPatientByName("Jane", "Doe"));
+    assertEquals("Both patients should be found", 2, 
+        model.findPatientsByName("Jane", "Doe").size());
+  }
+  
   @Test
   public void testGetAllPatients() {
     List<Patient> patients = model.getAllPatients();
@@ -151,6 +180,16 @@ public class ClinicModelTest {
     assertTrue("Room details should include room name", roomDetails.contains("Waiting Room"));
   }
   
+  @Test
+  public void testFindRoomByNameAndType() {
+    assertEquals("Room name lookup should ignore case", 
+        room2, model.findRoomByName("exam room 1"));
+    assertNull("Unknown room should not be found", model.findRoomByName("Lab"));
+    assertEquals("Room type lookup should ignore case", 
+        Arrays.asList(room1), model.findRoomsByType("WAITING"));
+    assertTrue("Unknown type should have no rooms", model.findRoomsByType("surgery").isEmpty());
+  }
+  
   @Test
   public void testGetAllRooms() {
     List<Room> rooms = model.getAllRooms();
@@ -175,9 +214,21 @@ public class ClinicModelTest {
     
   }
   
+  @Test
+  public void testListActiveClinicalStaffSkipsInactiveStaff() {
+    patient1.addVisitRecord(new VisitRecord(LocalDateTime.now(), "Flu", 37.5));
+    model.assignClinicalStaffToPatient(doctor1, patient1);
+    model.assignClinicalStaffToPatient(doctor2, patient1);
+    model.assignClinicalStaffToPatient(doctor2, patient2);
+    model.deactivateStaff(doctor2);
+    
+    assertEquals("Only active staff of patients with open visits should be listed", 
+        Arrays.asList(doctor1), model.listActiveClinicalStaff());
+  }
+  
   @Test
   public void testListInactivePatients() {
-    patient1.addVisitRecord(new VisitRecord(LocalDateTime.now().minusYears(2), "Checkup", 36.5));
+    model.addVisitRecord(patient1, LocalDateTime.now().minusYears(2), "Checkup", 36.5);
     List<Patient> inactivePatients = model.listInactivePatients();
     assertTrue("Should include patients inactive for over a year",
         inactivePatients.contains(patient1));
@@ -187,8 +238,8 @@ public class ClinicModelTest {
   
   @Test
   public void testPatientVisitSummaryPastYear() {
-    patient1.addVisitRecord(new VisitRecord(LocalDateTime.now().minusMonths(1), "Flu", 37.1));
-    patient1.addVisitRecord(new VisitRecord(LocalDateTime.now().minusMonths(5), "Checkup", 36.6));
+    model.addVisitRecord(patient1, LocalDateTime.now().minusMonths(1), "Flu", 37.1);
+    model.addVisitRecord(patient1, LocalDateTime.now().minusMonths(5), "Checkup", 36.6);
     Map<Patient, Long> visitSummary = model.patientVisitSummaryPastYear();
     assertEquals("Patient should have 2 visits this year", Long.valueOf(2), 
         visitSummary.get(patient1));
@@ -196,6 +247,21 @@ public class ClinicModelTest {
         Long.valueOf(0), visitSummary.get(patient2));
   }
   
+  @Test
+  public void testSnapshotReportsKeepTheirVisits() {
+    ClinicSnapshot before = model.getSnapshot();
+    model.addVisitRecord(patient1, LocalDateTime.now().minusDays(3), "Flu", 37.8);
+    ClinicSnapshot after = model.getSnapshot();
+    assertEquals("An older snapshot should not count later visits", Long.valueOf(0),
+        before.patientVisitSummaryPastYear().get(patient1));
+    assertTrue("An older snapshot should still list the patient as inactive",
+        before.listInactivePatients().contains(patient1));
+    assertEquals("The new snapshot should count the visit", Long.valueOf(1),
+        after.patientVisitSummaryPastYear().get(patient1));
+    assertFalse("The new snapshot should list the patient as active",
+        after.listInactivePatients().contains(patient1));
+  }
+  
   @Test
   public void testUnassignClinicalStaffFromPatient() {
     model.assignClinicalStaffToPatient(doctor1, patient1);
@@ -223,6 +289,184 @@ public class ClinicModelTest {
         Integer.valueOf(0), staffPatientCounts.get(doctor2));  
   }
   
+  @Test
+  public void testStaffPatientCountsAfterUnassign() {
+    model.assignClinicalStaffToPatient(doctor1, patient1);
+    model.assignClinicalStaffToPatient(doctor1, patient1);
+    model.assignClinicalStaffToPatient(doctor1, patient2);
+    model.assignClinicalStaffToPatient(doctor2, patient2);
+    model.unassignClinicalStaffFromPatient(doctor1, patient2);
+    assertEquals("Repeated and removed assignments should not count",
+        Integer.valueOf(1), model.listStaffPatientCounts().get(doctor1));
+    
+    model.unassignClinicalStaff(doctor2);
+    assertEquals("Unassigning staff everywhere should reset the count",
+        Integer.valueOf(0), model.listStaffPatientCounts().get(doctor2));
+  }
+  
+  @Test
+  public void testAssignmentsAreBidirectional() {
+    model.assignClinicalStaffToPatient(doctor1, patient1);
+    model.assignClinicalStaffToPatient(doctor1, patient2);
+    assertTrue("Staff should see their patients", 
+        model.getPatientsAssignedToClinicalStaff(doctor1).contains(patient2));
+    assertEquals("Staff's own list should be updated", 2, doctor1.getAssignedPatients().size());
+    
+    model.unassignClinicalStaff(doctor1);
+    assertTrue("Staff should have no patients left", 
+        model.getPatientsAssignedToClinicalStaff(doctor1).isEmpty());
+    assertTrue("Patient should have no staff left", 
+        model.getClinicalStaffAssignedToPatient(patient2).isEmpty());
+    assertEquals("Total assignments should be remembered", 
+        2, doctor1.getTotalAssignedPatientsCount());
+  }
+  
+  @Test(expected = UnsupportedOperationException.class)
+  public void testAssignedStaffCannotBeChangedPastTheModel() {
+    model.assignClinicalStaffToPatient(doctor1, patient1);
+    patient1.getAssignedClinicalStaff().clear();
+  }
+  
+  @Test
+  public void testActiveStaffWithPatientsFollowsAssignments() {
+    model.addVisitRecord(patient1, LocalDateTime.now(), "Flu", 38.0);
+    model.assignClinicalStaffToPatient(doctor1, patient1);
+    assertEquals("Assigned staff of a patient with an open visit should be listed",
+        List.of(patient1), model.listActiveStaffWithPatients().get(doctor1));
+    model.unassignClinicalStaffFromPatient(doctor1, patient1);
+    assertNull("Unassigned staff should not be listed",
+        model.listActiveStaffWithPatients().get(doctor1));
+  }
+  
+  @Test
+  public void testComplaintCounts() {
+    LocalDateTime january = LocalDateTime.of(2024, 1, 15, 9, 0);
+    model.addVisitRecord(patient1, january, "Flu", 38.0);
+    model.addVisitRecord(patient2, january.plusDays(1), "Flu", 37.8);
+    model.addVisitRecord(patient2, january.plusMonths(1), "Cold", 37.0);
+    
+    assertEquals("Flu should be counted twice", 
+        Integer.valueOf(2), model.getComplaintCounts().get("Flu"));
+    Map<YearMonth, Map<String, Integer>> byMonth = model.getComplaintCountsByMonth();
+    assertEquals("January should only count flu", 
+        Integer.valueOf(2), byMonth.get(YearMonth.of(2024, 1)).get("Flu"));
+    assertEquals("February should count the cold", 
+        Integer.valueOf(1), byMonth.get(YearMonth.of(2024, 2)).get("Cold"));
+    assertEquals("Visit should be added to the patient", 2, patient2.getVisitRecords().size());
+  }
+  
+  @Test
+  public void testSnapshotsAreImmutable() {
+    ClinicSnapshot before = model.getSnapshot();
+    model.addPatient(new Patient("Sam", "Lee", "2000-03-03"));
+    model.assignPatientToRoom(patient1, room2);
+    ClinicSnapshot after = model.getSnapshot();
+    
+    assertTrue("Each change should publish a newer snapshot", 
+        after.getVersion() > before.getVersion());
+    assertEquals("Old snapshot should keep its patients", 2, before.getPatients().size());
+    assertEquals("New snapshot should see the patient", 3, after.getPatients().size());
+    assertFalse("Old snapshot should keep the room empty", 
+        before.getRoomStates().get(1).isOccupied());
+    assertEquals("New snapshot should see the occupant", List.of("John Doe"), 
+        after.getRoomStates().get(1).getPatientNames());
+  }
+  
+  @Test
+  public void testSnapshotListsChangedRooms() {
+    ClinicSnapshot before = model.getSnapshot();
+    model.addPatient(new Patient("Sam", "Lee", "2000-03-03"));
+    assertEquals("Registering a patient should not change any room", List.of(),
+        model.getSnapshot().changedRoomsSince(before.getVersion()));
+    model.assignPatientToRoom(patient1, room2);
+    assertEquals("Only the room the patient moved into should change", List.of(1),
+        model.getSnapshot().changedRoomsSince(before.getVersion()));
+    model.clearRecords();
+    assertNull("Changes before clearing should not be known",
+        model.getSnapshot().changedRoomsSince(before.getVersion()));
+  }
+  
+  // Eight rooms, so that changing one of them only redraws a few tiles.
+  private static void addFloor(ClinicModel target, Patient... patients) {
+    for (int i = 0; i < 8; i++) {
+      int x = (i % 4) * 195 + 5;
+      int y = (i / 4) * 150 + 5;
+      target.addRoom(new Room(x, y, x + 185, y + 140, "exam", "Exam Room " + i));
+    }
+    for (Patient patient : patients) {
+      target.addPatient(patient);
+    }
+  }
+  
+  @Test
+  public void testPartialRenderMatchesFullRender() {
+    Patient ann = new Patient("Ann", "Blue", "1980-04-04");
+    Patient mark = new Patient("Mark", "Lee", "1985-11-23");
+    ClinicModel partial = new ClinicModel();
+    addFloor(partial, ann, mark);
+    TileRenderer partialTiles = new TileRenderer(100, 100);
+    partialTiles.update(partial.getSnapshot());
+    renderTiles(partialTiles);
+    partial.assignPatientToRoom(ann, partial.getRoom(1));
+    partialTiles.update(partial.getSnapshot());
+    renderTiles(partialTiles);
+    partial.assignPatientToRoom(mark, partial.getRoom(6));
+    partialTiles.update(partial.getSnapshot());
+    
+    ClinicModel full = new ClinicModel();
+    full.beginBulkLoad();
+    addFloor(full, ann, mark);
+    full.assignPatientToRoom(ann, full.getRoom(1));
+    full.assignPatientToRoom(mark, full.getRoom(6));
+    full.commitBulkLoad();
+    TileRenderer fullTiles = new TileRenderer(100, 100);
+    fullTiles.update(full.getSnapshot());
+    full.shutdown();
+    partial.shutdown();
+    
+    for (int tx = 0; tx < 8; tx++) {
+      for (int ty = 0; ty < 6; ty++) {
+        BufferedImage expected = fullTiles.getTile(tx, ty);
+        BufferedImage actual = partialTiles.getTile(tx, ty);
+        for (int x = 0; x < 100; x++) {
+          for (int y = 0; y < 100; y++) {
+            assertEquals("Tile " + tx + "," + ty + " pixel " + x + "," + y
+                + " should match a full redraw", expected.getRGB(x, y), actual.getRGB(x, y));
+          }
+        }
+      }
+    }
+  }
+  
+  // Caches every tile of the floor, so later changes have tiles to invalidate.
+  private static void renderTiles(TileRenderer renderer) {
+    for (int tx = 0; tx < 8; tx++) {
+      for (int ty = 0; ty < 6; ty++) {
+        renderer.getTile(tx, ty);
+      }
+    }
+  }
+  
+  @Test
+  public void testChangesAfterShutdown() {
+    model.shutdown();
+    model.addRoom(new Room(30, 30, 40, 40, "exam", "Exam Room 2"));
+    assertEquals("Changes should still be applied after shutdown", 3,
+        model.getAllRooms().size());
+  }
+  
+  @Test
+  public void testVisitsOutliveClear() {
+    InterfaceVisitRecord visit = model.addVisitRecord(patient1, null, "Flu", 38.0);
+    assertNull("A visit without a time should be kept", visit.getVisitTime());
+    model.clearRecords();
+    model.addVisitRecord(patient2, LocalDateTime.of(2024, 1, 15, 9, 0), "Cold", 37.0);
+    assertEquals("Visits from before the clear should not change", "Flu",
+        visit.getChiefComplaint());
+    assertNull("Complaints from before the clear should not be counted",
+        model.getComplaintCounts().get("Flu"));
+  }
+  
   @Test
   public void testClearRecords() {
     model.clearRecords();
@@ -239,4 +483,90 @@ public class ClinicModelTest {
     //assertTrue("Graphics should be updated after loading data", model.isGraphicsUpdated());
   }
   
+  @Test
+  public void testLoadClinicDataInBulk() throws IOException {
+    Path file = Files.createTempFile("clinic", ".txt");
+    Files.write(file, Arrays.asList(
+        "Room, Exam Room 2, exam, 30, 30, 40, 40",
+        "Staff, Carol White, Doctor, MD, 5555555555",
+        "Patient, Tom Green, 1970-03-03, 2024-01-01T10:00, Flu, 38.2",
+        "AssignStaff, Tom Green, Carol White"));
+    model.loadClinicData(file.toString());
+    Files.delete(file);
+    
+    assertEquals("Room should be loaded", 3, model.getAllRooms().size());
+    Patient loaded = model.findPatientByName("Tom", "Green");
+    assertNotNull("Patient should be loaded", loaded);
+    assertEquals("Staff should be assigned while loading", 1, 
+        loaded.getAssignedClinicalStaff().size());
+  }
+  
+  @Test
+  public void testLoadClinicDataSkipsBadRows() throws IOException {
+    Path file = Files.createTempFile("clinic", ".txt");
+    Path quarantine = Files.createTempFile("clinic", ".rejected");
+    Files.write(file, Arrays.asList(
+        "Room, Exam Room 2, exam, 30, 30, forty, 40",
+        "Staff, Carol White, Doctor, MD, 5555555555",
+        "Patient, Tom Green, 1970-03-03, 2024-01-01 10:00, Flu, 38.2",
+        "Patient, Ann Blue, 1980-04-04",
+        "Assign, Ann",
+        "Discharge, Ann Blue",
+        "AssignStaff, Ann Blue, Carol White"));
+    LoadReport report = model.loadClinicData(file.toString(), quarantine.toString());
+    List<String> rejected = Files.readAllLines(quarantine);
+    Files.delete(file);
+    Files.delete(quarantine);
+    
+    assertFalse("Report should not be clean", report.isClean());
+    assertEquals("Every line should be read", 7, report.getLineCount());
+    assertEquals("Good rows should be applied", 3, report.getAppliedCount());
+    assertEquals("Bad rows should be rejected", 4, report.getRejectedCount());
+    LoadReport.Diagnostic first = report.getDiagnostics().get(0);
+    assertEquals("Diagnostic should give the line", 1, first.getLineNumber());
+    assertEquals("Diagnostic should give the directive", "Room", first.getDirective());
+    assertTrue("Diagnostic should give the reason", first.getReason().contains("forty"));
+    assertEquals("Patient with a bad visit should not be added", null,
+        model.findPatientByName("Tom", "Green"));
+    assertEquals("Rows after the bad ones should be applied", 1,
+        model.findPatientByName("Ann", "Blue").getAssignedClinicalStaff().size());
+    assertEquals("Quarantine should hold a comment and the row for each reject", 8,
+        rejected.size());
+    assertEquals("Quarantine should keep the rejected row", "Discharge, Ann Blue",
+        rejected.get(7));
+    assertTrue("Quarantine comment should give the line", rejected.get(6).startsWith("# Line 6"));
+  }
+  
+  @Test
+  public void testFindRoomAt() {
+    Room lobby = new Room(100, 100, 300, 300, "waiting", "Lobby");
+    Room corner = new Room(250, 250, 400, 400, "exam", "Corner");
+    model.addRoom(lobby);
+    model.addRoom(corner);
+    assertEquals("Point inside a room should find it", corner, model.findRoomAt(350, 350));
+    assertEquals("Overlap should go to the room added first", lobby, 
+        model.findRoomAt(260, 260));
+    assertNull("Point outside every room should find nothing", model.findRoomAt(1000, 5));
+    assertEquals("Area should find the rooms it overlaps", Arrays.asList(lobby, corner), 
+        model.findRoomsIn(200, 200, 260, 260));
+    assertEquals("Nearest room should be the closest one", corner, 
+        model.findNearestRoom(500, 500));
+    model.clearRecords();
+    assertNull("Cleared model should find no room", model.findRoomAt(350, 350));
+  }
+  
+  @Test
+  public void testLoadClinicDataMissingFile() {
+    LoadReport report = model.loadClinicData("missing_file.txt");
+    assertNotNull("Missing file should be reported", report.getFailure());
+    assertEquals("Nothing should be read", 0, report.getLineCount());
+  }
+  
+  @Test(expected = IllegalStateException.class)
+  public void testCommitWithoutBeginBulkLoad() {
+    model.beginBulkLoad();
+    model.commitBulkLoad();
+    model.commitBulkLoad();
+  }
+  
 }
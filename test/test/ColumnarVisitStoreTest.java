@@ -0,0 +1,64 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import clinic.ColumnarVisitStore;
+import clinic.InterfaceVisitRecord;
+import java.time.LocalDateTime;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing the column based visit record store.
+ */
+public class ColumnarVisitStoreTest {
+  private ColumnarVisitStore store;
+  
+  /**
+   * Creating an empty store for each test.
+   */
+  @Before
+  public void setUp() {
+    store = new ColumnarVisitStore();
+  }
+  
+  @Test
+  public void testAppendAndRead() {
+    LocalDateTime time = LocalDateTime.of(2024, 5, 1, 9, 30);
+    InterfaceVisitRecord visit = store.append(time, "Flu", 37.26);
+    assertEquals("Visit time should round trip", time, visit.getVisitTime());
+    assertEquals("Complaint should round trip", "Flu", visit.getChiefComplaint());
+    assertEquals("Temperature should be rounded to one decimal", 
+        37.3, visit.getBodyTemperature(), 0.0);
+    assertFalse("Visit should start incomplete", visit.isVisitComplete());
+    assertEquals("Views of the same row should be equal", visit, store.get(0));
+  }
+  
+  @Test
+  public void testComplaintsAreShared() {
+    for (int i = 0; i < 100; i++) {
+      store.append(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i), i % 2 == 0 ? "Flu" : "Cold", 
+          36.6);
+    }
+    assertEquals("All visits should be stored", 100, store.size());
+    assertEquals("Complaints should be stored once", 2, store.complaintCount());
+    assertEquals("Complaint should be decoded", "Cold", store.get(99).getChiefComplaint());
+  }
+  
+  @Test
+  public void testKeepsFullTime() {
+    LocalDateTime time = LocalDateTime.of(2024, 5, 1, 9, 30, 15, 123456789);
+    assertEquals("Visit time should keep its nanos", time,
+        store.append(time, "Checkup", 36.5).getVisitTime());
+    assertNull("A missing visit time should stay missing",
+        store.append(null, "Checkup", 36.5).getVisitTime());
+    assertEquals("Visits without a time should still be stored", 2, store.size());
+  }
+  
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testMissingVisit() {
+    store.get(0);
+  }
+}
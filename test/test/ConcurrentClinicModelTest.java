@@ -0,0 +1,115 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import clinic.ClinicModel;
+import clinic.ClinicalStaff;
+import clinic.ConcurrentClinicModel;
+import clinic.Patient;
+import clinic.Room;
+import clinic.Staff;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Stress testing the thread safe model from many threads at once.
+ */
+public class ConcurrentClinicModelTest {
+  private static final int THREADS = 8;
+  private static final int PATIENTS_PER_THREAD = 500;
+  
+  private ConcurrentClinicModel model;
+  private ClinicalStaff doctor;
+  private ExecutorService executor;
+  
+  /**
+   * Creating a shared model with one room and one doctor.
+   */
+  @Before
+  public void setUp() {
+    model = new ConcurrentClinicModel(new ClinicModel());
+    model.addRoom(new Room(0, 0, 100, 100, "waiting", "Waiting Room"));
+    doctor = new ClinicalStaff("Alice", "Smith", "MD", "1234567890", "Doctor");
+    model.addStaff(doctor);
+    executor = Executors.newFixedThreadPool(THREADS * 2);
+  }
+  
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+    model.shutdown();
+  }
+  
+  @Test
+  public void testParallelWritersAndReaders() throws Exception {
+    CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int t = 0; t < THREADS; t++) {
+      final int thread = t;
+      futures.add(executor.submit(() -> {
+        start.await();
+        Room waitingRoom = model.findRoomByName("Waiting Room");
+        for (int i = 0; i < PATIENTS_PER_THREAD; i++) {
+          Patient patient = new Patient("P" + thread, "N" + i, "2000-01-01");
+          model.addPatient(patient);
+          model.addVisitRecord(patient, LocalDateTime.now(), "Flu", 37.5);
+          model.assignClinicalStaffToPatient(doctor, patient);
+          model.assignPatientToRoom(patient, waitingRoom);
+        }
+        return null;
+      }));
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int i = 0; i < PATIENTS_PER_THREAD; i++) {
+          model.listActiveClinicalStaff();
+          model.listStaffPatientCounts();
+          model.patientVisitSummaryPastYear();
+          model.getSeatingChart();
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> future : futures) {
+      future.get(60, TimeUnit.SECONDS);
+    }
+    
+    int expected = THREADS * PATIENTS_PER_THREAD;
+    assertEquals("Every patient should be added", expected, model.getAllPatients().size());
+    Map<Staff, Integer> counts = model.listStaffPatientCounts();
+    assertEquals("Every assignment should be counted", Integer.valueOf(expected), 
+        counts.get(doctor));
+    assertEquals("Every complaint should be counted", Integer.valueOf(expected), 
+        model.getComplaintCounts().get("Flu"));
+    assertNotNull("Patients should be found by name", model.findPatientByName("P3", "N42"));
+  }
+  
+  @Test
+  public void testBulkLoadBlocksOtherWriters() throws Exception {
+    model.beginBulkLoad();
+    Future<?> writer = executor.submit(() -> model.addPatient(new Patient("Late", "Comer", "")));
+    Thread.sleep(50);
+    assertFalse("Other writers should wait for the bulk load", writer.isDone());
+    model.commitBulkLoad();
+    writer.get(5, TimeUnit.SECONDS);
+    assertNotNull("Waiting writer should run after commit", 
+        model.findPatientByName("Late", "Comer"));
+  }
+  
+  @Test(expected = IllegalStateException.class)
+  public void testCommitWithoutBegin() {
+    model.commitBulkLoad();
+  }
+}
@@ -0,0 +1,202 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import clinic.ClinicModel;
+import clinic.GraphicsPanel;
+import clinic.Patient;
+import clinic.Room;
+import clinic.RoomGraphics;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing that the graphics panel only draws visible rooms, at the
+ * detail the zoom allows.
+ */
+public class GraphicsPanelTest {
+  private GraphicsPanel panel;
+  private List<CountingRoom> grid;
+
+  /**
+   * A room that counts how often and how it was drawn.
+   */
+  private static final class CountingRoom extends RoomGraphics {
+    private int draws;
+    private int detail = -1;
+
+    CountingRoom(int x, int y) {
+      this(x, y, "Room");
+    }
+
+    CountingRoom(int x, int y, String name) {
+      super(x, y, 40, 40, name, false, Collections.singletonList("Jane Doe"),
+          Collections.emptyList());
+    }
+
+    @Override
+    public void draw(Graphics g, int sx, int sy, int sw, int sh, int detail) {
+      draws++;
+      this.detail = detail;
+      super.draw(g, sx, sy, sw, sh, detail);
+    }
+  }
+
+  /**
+   * Filling the panel with a 100 by 100 grid of rooms.
+   */
+  @Before
+  public void setUp() {
+    panel = new GraphicsPanel();
+    panel.setSize(800, 600);
+    grid = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      for (int j = 0; j < 100; j++) {
+        grid.add(new CountingRoom(i * 50, j * 50));
+      }
+    }
+    panel.updateRooms(new ArrayList<>(grid));
+  }
+
+  private BufferedImage paint() {
+    BufferedImage image = new BufferedImage(800, 600, BufferedImage.TYPE_INT_ARGB);
+    Graphics g = image.getGraphics();
+    panel.paint(g);
+    g.dispose();
+    return image;
+  }
+
+  private int drawnRooms() {
+    int drawn = 0;
+    for (CountingRoom room : grid) {
+      drawn += room.draws;
+      room.draws = 0;
+    }
+    return drawn;
+  }
+
+  @Test
+  public void testDrawsOnlyVisibleRooms() {
+    panel.zoomTo(0.3, 0, 0);
+    paint();
+    assertEquals("The corner room should be drawn", 1, grid.get(0).draws);
+    assertEquals("The far room should not be drawn", 0, grid.get(9999).draws);
+    // 54 columns of 15 pixels fill 800 pixels, 41 rows reach the bottom edge.
+    assertEquals("Only rooms in the panel should be drawn", 54 * 41, drawnRooms());
+    panel.panBy(-400, 0);
+    paint();
+    assertEquals("Rooms panned out of view should not be drawn", 0, grid.get(0).draws);
+    assertEquals("Rooms panned into view should be drawn", 1, grid.get(60 * 100).draws);
+  }
+
+  @Test
+  public void testDetailFollowsZoom() {
+    paint();
+    assertEquals("Names should be drawn at full zoom", RoomGraphics.DETAIL_FULL,
+        grid.get(0).detail);
+    panel.zoomTo(0.5, 0, 0);
+    paint();
+    assertEquals("Only room names should be drawn when zoomed out", RoomGraphics.DETAIL_NAME,
+        grid.get(0).detail);
+    panel.zoomTo(0.1, 0, 0);
+    BufferedImage image = paint();
+    assertEquals("Rooms should be plain blocks when far out", RoomGraphics.DETAIL_BLOCK,
+        grid.get(0).detail);
+    assertEquals("A block should be filled with the room color", Color.GREEN.getRGB(),
+        image.getRGB(2, 2));
+  }
+
+  @Test
+  public void testZoomKeepsAnchor() {
+    Point before = panel.toWorld(new Point(300, 200));
+    panel.zoomTo(2.5, 300, 200);
+    assertEquals("The point under the anchor should stay put", before,
+        panel.toWorld(new Point(300, 200)));
+    assertEquals("Zoom should be applied", 2.5, panel.getZoom(), 1e-9);
+    panel.zoomTo(1000, 0, 0);
+    assertEquals("Zoom should be clamped", GraphicsPanel.MAX_ZOOM, panel.getZoom(), 1e-9);
+  }
+
+  @Test
+  public void testToWorldUndoesPan() {
+    panel.zoomTo(2, 0, 0);
+    panel.panBy(100, -50);
+    Point world = panel.toWorld(new Point(300, 150));
+    assertEquals("X should undo pan and zoom", 100, world.x);
+    assertEquals("Y should undo pan and zoom", 100, world.y);
+    panel.resetView();
+    assertEquals("Reset should return to one to one", new Point(7, 9),
+        panel.toWorld(new Point(7, 9)));
+  }
+
+  @Test
+  public void testShowsChangedRooms() {
+    ClinicModel model = new ClinicModel();
+    for (int i = 0; i < 8; i++) {
+      model.addRoom(new Room(i * 90, 0, i * 90 + 80, 80, "exam", "Exam Room " + i));
+    }
+    Patient patient = new Patient("Ann", "Blue", "1980-04-04");
+    model.addPatient(patient);
+    panel.showSnapshot(model.getSnapshot());
+    model.assignPatientToRoom(patient, model.getRoom(3));
+    panel.showSnapshot(model.getSnapshot());
+    model.shutdown();
+    BufferedImage image = paint();
+    assertEquals("The changed room should be shown occupied", Color.RED.getRGB(),
+        image.getRGB(3 * 90 + 70, 70));
+    assertEquals("Other rooms should stay empty", Color.GREEN.getRGB(),
+        image.getRGB(2 * 90 + 70, 70));
+  }
+
+  @Test
+  public void testRepaintReusesView() {
+    BufferedImage first = paint();
+    int visible = drawnRooms();
+    BufferedImage second = paint();
+    assertEquals("A repaint without changes should not draw rooms", 0, drawnRooms());
+    assertEquals("A repaint should show the same picture", first.getRGB(30, 30),
+        second.getRGB(30, 30));
+    panel.panBy(-50, 0);
+    BufferedImage panned = paint();
+    int drawn = drawnRooms();
+    assertTrue("Panning should only draw the uncovered strip, not " + drawn,
+        drawn > 0 && drawn < visible / 2);
+    assertEquals("Panning should move what was drawn", first.getRGB(80, 30),
+        panned.getRGB(30, 30));
+    panel.zoomTo(0.9, 0, 0);
+    paint();
+    assertTrue("Zooming should draw the view anew", drawnRooms() > visible / 2);
+  }
+
+  @Test
+  public void testDrawsLongNamesReachingIntoView() {
+    CountingRoom wide = new CountingRoom(0, 0, String.join("", Collections.nCopies(80, "Wide")));
+    panel.updateRooms(Collections.singletonList(wide));
+    panel.panBy(-250, 0);
+    paint();
+    assertEquals("A room whose name reaches into view should be drawn", 1, wide.draws);
+  }
+
+  @Test
+  public void testFarZoomDrawsEachRoomOnce() {
+    panel.zoomTo(0.1, 0, 0);
+    paint();
+    assertEquals("Every room should be in view", grid.size(), drawnRooms());
+    for (int i = 0; i < 10; i++) {
+      panel.zoomTo(0.1, 0, 0); // Draws the whole view again rather than copying it.
+      paint();
+    }
+    for (CountingRoom room : grid) {
+      assertEquals("Each redraw should draw each room once", 10, room.draws);
+      assertEquals("Rooms should be plain blocks", RoomGraphics.DETAIL_BLOCK, room.detail);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+
+import clinic.ClinicDataHandler;
+import clinic.ClinicDataParser;
+import clinic.MappedClinicDataParser;
+import clinic.TextClinicDataParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing that the mapped parser reads files the same way as the text parser.
+ */
+public class MappedClinicDataParserTest {
+  private static final String DATA = "# Rooms\r\n"
+      + "Room, Waiting Room, Waiting, 10, 20, 30, 40\r\n"
+      + "ROOM,Exam Room 1,  Exam, -5, 60, 70, 80   \n"
+      + "\n"
+      + "   # Staff\n"
+      + "Staff, Dr. John Smith, Doctor, PhD, 123456789\n"
+      + "Staff, Nina   Ortiz , Nurse, BSN,\n"
+      + "Patient, Jane Doe, 1990-05-14, 2024-10-10T12:30, flu, 38.25\n"
+      + "Patient, Zoë Müller , 1985-11-23, 2024-12-09T10:00:15 , cold ,37\n"
+      + "Patient, Solo, 2000-01-01\n"
+      + "Assign, Jane Doe, Waiting Room\n"
+      + "AssignStaff, Jane Doe, Dr. John\n"
+      + "DeactivateStaff, Nina Ortiz\n"
+      + "SendHome, Jane Doe, Dr. John\n"
+      + "Discharge, Jane Doe\n"
+      + "Room, Last Room, Exam, 1, 2, 3, 4";
+
+  private Path file;
+
+  /**
+   * Writing a data file with a mix of directives and formatting quirks.
+   */
+  @Before
+  public void setUp() throws IOException {
+    file = Files.createTempFile("clinic", ".txt");
+    Files.write(file, DATA.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Removing the data file.
+   */
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  private static List<String> record(ClinicDataParser parser, Path path) throws IOException {
+    List<String> calls = new ArrayList<>();
+    long lines = parser.parse(path, new ClinicDataHandler() {
+      @Override
+      public void room(String roomName, String roomType, int x1, int y1, int x2, int y2) {
+        calls.add("room|" + roomName + "|" + roomType + "|" + x1 + "|" + y1 + "|" + x2 + "|" + y2);
+      }
+
+      @Override
+      public void staff(String firstName, String lastName, String role, String educationLevel,
+          String npi) {
+        calls.add("staff|" + firstName + "|" + lastName + "|" + role + "|" + educationLevel
+            + "|" + npi);
+      }
+
+      @Override
+      public void patient(String firstName, String lastName, String dob) {
+        calls.add("patient|" + firstName + "|" + lastName + "|" + dob);
+      }
+
+      @Override
+      public void visit(LocalDateTime visitTime, String chiefComplaint, double temperature) {
+        calls.add("visit|" + visitTime + "|" + chiefComplaint + "|" + temperature);
+      }
+
+      @Override
+      public void assign(String firstName, String lastName, String roomName) {
+        calls.add("assign|" + firstName + "|" + lastName + "|" + roomName);
+      }
+
+      @Override
+      public void assignStaff(String patientFirstName, String patientLastName,
+          String staffFirstName, String staffLastName) {
+        calls.add("assignStaff|" + patientFirstName + "|" + patientLastName + "|"
+            + staffFirstName + "|" + staffLastName);
+      }
+
+      @Override
+      public void deactivateStaff(String firstName, String lastName) {
+        calls.add("deactivateStaff|" + firstName + "|" + lastName);
+      }
+
+      @Override
+      public void sendHome(String patientFirstName, String patientLastName,
+          String staffFirstName, String staffLastName) {
+        calls.add("sendHome|" + patientFirstName + "|" + patientLastName + "|"
+            + staffFirstName + "|" + staffLastName);
+      }
+
+      @Override
+      public void unknown(String directive) {
+        calls.add("unknown|" + directive);
+      }
+    });
+    calls.add("lines|" + lines);
+    return calls;
+  }
+
+  @Test
+  public void testSameResultsAsTextParser() throws IOException {
+    List<String> expected = record(new TextClinicDataParser(), file);
+    assertEquals("Every directive should be read", 16, expected.size());
+    assertEquals("Mapped parser should match the text parser", expected,
+        record(new MappedClinicDataParser(), file));
+  }
+
+  @Test
+  public void testLinesAcrossWindows() throws IOException {
+    assertEquals("Lines cut by a window should be read whole",
+        record(new TextClinicDataParser(), file), record(new MappedClinicDataParser(80), file));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void testBadNumber() throws IOException {
+    Files.write(file, "Room, Bad, Exam, 1, two, 3, 4\n".getBytes(StandardCharsets.UTF_8));
+    record(new MappedClinicDataParser(), file);
+  }
+
+  @Test(expected = ArrayIndexOutOfBoundsException.class)
+  public void testMissingField() throws IOException {
+    Files.write(file, "Assign, Jane\n".getBytes(StandardCharsets.UTF_8));
+    record(new MappedClinicDataParser(), file);
+  }
+}
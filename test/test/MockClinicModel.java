@@ -1,10 +1,19 @@
 package test;
 
+import clinic.ClinicSnapshot;
 import clinic.ClinicalStaff;
 import clinic.InterfaceClinicModel;
+import clinic.InterfaceVisitRecord;
+import clinic.LoadReport;
 import clinic.Patient;
 import clinic.Room;
 import clinic.Staff;
+import clinic.TileRenderer;
+import clinic.VisitRecord;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -45,6 +54,21 @@ public class MockClinicModel implements InterfaceClinicModel {
     return null;
   }
 
+  @Override
+  public Room findRoomByName(String roomName) {
+    return rooms.stream()
+        .filter(r -> r.getRoomName().equalsIgnoreCase(roomName))
+        .findFirst()
+        .orElse(null);
+  }
+
+  @Override
+  public List<Room> findRoomsByType(String roomType) {
+    return rooms.stream()
+        .filter(r -> r.getRoomType().equalsIgnoreCase(roomType))
+        .toList();
+  }
+
   @Override
   public String getRoomDetails(int roomIndex) {
     Room room = getRoom(roomIndex);
@@ -56,6 +80,43 @@ public class MockClinicModel implements InterfaceClinicModel {
     return rooms;
   }
 
+  @Override
+  public Room findRoomAt(int x, int y) {
+    for (Room room : rooms) {
+      if (x >= room.getX1() && x <= room.getX2() && y >= room.getY1() && y <= room.getY2()) {
+        return room;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public List<Room> findRoomsIn(int x1, int y1, int x2, int y2) {
+    List<Room> found = new ArrayList<>();
+    for (Room room : rooms) {
+      if (room.getX1() <= x2 && room.getX2() >= x1 && room.getY1() <= y2
+          && room.getY2() >= y1) {
+        found.add(room);
+      }
+    }
+    return found;
+  }
+
+  @Override
+  public Room findNearestRoom(int x, int y) {
+    Room nearest = null;
+    long nearestDistance = Long.MAX_VALUE;
+    for (Room room : rooms) {
+      long dx = Math.max(0, Math.max(room.getX1() - x, x - room.getX2()));
+      long dy = Math.max(0, Math.max(room.getY1() - y, y - room.getY2()));
+      if (dx * dx + dy * dy < nearestDistance) {
+        nearest = room;
+        nearestDistance = dx * dx + dy * dy;
+      }
+    }
+    return nearest;
+  }
+
   @Override
   public void activatePatient(Patient patient) {
     patient.activate();
@@ -124,6 +185,24 @@ public class MockClinicModel implements InterfaceClinicModel {
     return new HashSet<>(); 
   }
 
+  @Override
+  public InterfaceVisitRecord addVisitRecord(Patient patient, LocalDateTime visitTime,
+      String chiefComplaint, double bodyTemperature) {
+    VisitRecord visitRecord = new VisitRecord(visitTime, chiefComplaint, bodyTemperature);
+    patient.addVisitRecord(visitRecord);
+    return visitRecord;
+  }
+
+  @Override
+  public Map<String, Integer> getComplaintCounts() {
+    return new HashMap<>();
+  }
+
+  @Override
+  public Map<YearMonth, Map<String, Integer>> getComplaintCountsByMonth() {
+    return new HashMap<>();
+  }
+
   @Override
   public ClinicalStaff getDeactivationApprover(Patient patient) {
     return patient.getDeactivationApprover();
@@ -157,13 +236,13 @@ public class MockClinicModel implements InterfaceClinicModel {
 
   @Override
   public void unassignClinicalStaff(ClinicalStaff staff) {
-    patients.forEach(patient -> patient.getAssignedClinicalStaff().remove(staff));
+    patients.forEach(patient -> patient.removeClinicalStaff(staff));
     graphicsUpdated = true;    
   }
 
   @Override
   public void unassignClinicalStaffFromPatient(ClinicalStaff staff, Patient patient) {
-    patient.getAssignedClinicalStaff().remove(staff);
+    patient.removeClinicalStaff(staff);
     graphicsUpdated = true;    
   }
 
@@ -192,15 +271,46 @@ public class MockClinicModel implements InterfaceClinicModel {
     return result;
   }
 
+  @Override
+  public ClinicSnapshot getSnapshot() {
+    return ClinicSnapshot.of(patients, staffMembers, rooms);
+  }
+
+  @Override
+  public void exportFloorPlan(String path) throws IOException {
+    new TileRenderer().export(getSnapshot(), Paths.get(path));
+  }
+
+  @Override
+  public void shutdown() {
+    // No background threads to stop.
+  }
+
   @Override
   public void notifyViewUpdate() {
     graphicsUpdated = true;    
   }
 
   @Override
-  public void loadClinicData(String filePath) {
+  public void beginBulkLoad() {
+    // Mock does not render, nothing to hold back.
+  }
+
+  @Override
+  public void commitBulkLoad() {
+    graphicsUpdated = true;
+  }
+
+  @Override
+  public LoadReport loadClinicData(String filePath) {
     System.out.println("Mock loading clinic data from: " + filePath);
     graphicsUpdated = true;    
+    return LoadReport.clean(0, 0, 0);
+  }
+
+  @Override
+  public LoadReport loadClinicData(String filePath, String quarantinePath) {
+    return loadClinicData(filePath);
   }
 
   @Override
@@ -0,0 +1,208 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import clinic.ClinicDataApplier;
+import clinic.ClinicModel;
+import clinic.ClinicalStaff;
+import clinic.MappedClinicDataParser;
+import clinic.ParallelClinicDataParser;
+import clinic.Patient;
+import clinic.Staff;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing that the parallel parser loads a model the same way as a
+ * sequential load.
+ */
+public class ParallelClinicDataParserTest {
+  private static final String DATA = "Room, Waiting Room, Waiting, 10, 20, 30, 40\n"
+      + "Assign, Jane Doe, Waiting Room\n"
+      + "Staff, Dr. John Smith, Doctor, PhD, 123456789\n"
+      + "Patient, Jane Doe, 1990-05-14, 2024-10-10T12:30, flu, 38.2\n"
+      + "AssignStaff, Jane Doe, Dr. John\n"
+      + "AssignStaff, Mark Lee, Dr. John\n"
+      + "Assign, Jane Doe, Exam Room\n"
+      + "Room, Exam Room, Exam, 50, 60, 70, 80\n"
+      + "Patient, Mark Lee, 1985-11-23\n"
+      + "Assign, Mark Lee, Exam Room\n"
+      + "Staff, Nina Ortiz, Nurse, BSN\n"
+      + "# Comment\n"
+      + "DeactivateStaff, Nina Ortiz\n"
+      + "SendHome, Jane Doe, Dr. John\n"
+      + "Patient, Jane Doe, 2001-01-01\n"
+      + "Assign, Jane Doe, Exam Room\n";
+
+  private Path file;
+  private ForkJoinPool pool;
+
+  // Models made by a test, their render threads are stopped after it.
+  private final List<ClinicModel> models = new ArrayList<>();
+
+  private ClinicModel newModel() {
+    ClinicModel model = new ClinicModel();
+    models.add(model);
+    return model;
+  }
+
+  /**
+   * Writing a data file where some actions come before the entities they name.
+   */
+  @Before
+  public void setUp() throws IOException {
+    file = Files.createTempFile("clinic", ".txt");
+    Files.write(file, DATA.getBytes(StandardCharsets.UTF_8));
+    pool = new ForkJoinPool(4);
+  }
+
+  /**
+   * Removing the data file and stopping the pool and models.
+   */
+  @After
+  public void tearDown() throws IOException {
+    for (ClinicModel model : models) {
+      model.shutdown();
+    }
+    pool.shutdownNow();
+    Files.deleteIfExists(file);
+  }
+
+  private static String describe(ClinicModel model) {
+    StringBuilder sb = new StringBuilder();
+    for (Patient patient : model.getAllPatients()) {
+      sb.append(patient.getFirstName()).append(' ').append(patient.getLastName())
+          .append(patient.isActive() ? " active" : " inactive")
+          .append(" in ").append(patient.getAssignedRoom() == null ? "-"
+              : patient.getAssignedRoom().getRoomName());
+      for (ClinicalStaff staff : patient.getAssignedClinicalStaff()) {
+        sb.append(" with ").append(staff.getFirstName());
+      }
+      sb.append('\n');
+    }
+    for (Staff staff : model.getAllStaff()) {
+      sb.append(staff.getFirstName()).append(staff.isActive() ? " active\n" : " inactive\n");
+    }
+    return sb.append(model.getSeatingChart()).toString();
+  }
+
+  private ClinicModel loadSequential() throws IOException {
+    ClinicModel model = newModel();
+    new MappedClinicDataParser().parse(file, new ClinicDataApplier(model));
+    return model;
+  }
+
+  private ClinicModel loadParallel(long chunkSize) throws IOException {
+    ClinicModel model = newModel();
+    long lines = new ParallelClinicDataParser(pool, chunkSize).parse(file,
+        new ClinicDataApplier(model, true));
+    assertEquals("Every line should be counted", 16, lines);
+    return model;
+  }
+
+  @Test
+  public void testSameModelAsSequentialLoad() throws IOException {
+    String expected = describe(loadSequential());
+    assertEquals("One chunk should match a sequential load", expected,
+        describe(loadParallel(ParallelClinicDataParser.DEFAULT_MIN_CHUNK_SIZE)));
+    assertEquals("Many chunks should match a sequential load", expected,
+        describe(loadParallel(16)));
+  }
+
+  @Test
+  public void testActionsOnlySeeEarlierEntities() throws IOException {
+    ClinicModel model = loadParallel(16);
+    assertEquals("Assigning Jane before she was defined should be ignored", 0,
+        model.findRoomByName("Waiting Room").getAssignedPatients().size());
+    assertEquals("Staff assigned to Jane after she was defined should be kept", 1,
+        model.findPatientByName("Jane", "Doe").getAssignedClinicalStaff().size());
+    assertEquals("Staff assigned before Mark was defined should be ignored", 0,
+        model.findPatientByName("Mark", "Lee").getAssignedClinicalStaff().size());
+  }
+
+  @Test
+  public void testStopsAtBadLine() throws IOException {
+    Files.write(file, ("Room, Waiting Room, Waiting, 10, 20, 30, 40\n"
+        + "Patient, Jane Doe, 1990-05-14\n"
+        + "Assign, Jane Doe, Waiting Room\n"
+        + "Room, Bad, Exam, 1, two, 3, 4\n"
+        + "Patient, Mark Lee, 1985-11-23\n"
+        + "Assign, Mark Lee, Waiting Room\n").getBytes(StandardCharsets.UTF_8));
+    ClinicModel model = newModel();
+    try {
+      new ParallelClinicDataParser(pool, 16).parse(file, new ClinicDataApplier(model, true));
+      fail("The bad number should be reported");
+    } catch (NumberFormatException e) {
+      // Expected, the lines before it should still be loaded.
+    }
+    assertEquals("Lines before the bad one should be applied", 1,
+        model.findRoomByName("Waiting Room").getAssignedPatients().size());
+    assertNull("Lines after the bad one should not be applied",
+        model.findPatientByName("Mark", "Lee"));
+  }
+
+  @Test
+  public void testVisitIsRejectedWithItsPatient() throws IOException {
+    Files.write(file, ("Patient, Jane Doe, 1990-05-14\n"
+        + "Patient, Bad Patient, 1985-11-23, 2024-10-10T12:30, flu, 38.2\n"
+        + "Patient, Mark Lee, 1985-11-23\n").getBytes(StandardCharsets.UTF_8));
+    ClinicModel model = newModel();
+    List<String> rejected = new ArrayList<>();
+    new ParallelClinicDataParser(pool, 16).parse(file,
+        new ClinicDataApplier(model, true) {
+          @Override
+          public void patient(String firstName, String lastName, String dob) {
+            if (firstName.equals("Bad")) {
+              throw new IllegalArgumentException("Refused");
+            }
+            super.patient(firstName, lastName, dob);
+          }
+
+          @Override
+          public void reject(long lineNumber, String line, RuntimeException error) {
+            rejected.add(lineNumber + ": " + error.getMessage());
+          }
+        });
+    assertEquals("The whole line should be rejected once", Arrays.asList("2: Refused"),
+        rejected);
+    assertEquals("The visit should not go to the patient before", 0,
+        model.findPatientByName("Jane", "Doe").getVisitRecords().size());
+  }
+
+  @Test
+  public void testRejectedLinesAreNumbered() throws IOException {
+    Files.write(file, ("Room, Waiting Room, Waiting, 10, 20, 30, 40\n"
+        + "Patient, Jane Doe, 1990-05-14\n"
+        + "Room, Bad, Exam, 1, two, 3, 4\n"
+        + "Staff, Nina Ortiz, Nurse, BSN\n"
+        + "SendHome, Jane Doe, Nina Ortiz\r\n"
+        + "Patient, Mark Lee, 1985-11-23\n"
+        + "Assign, Mark Lee, Waiting Room\n").getBytes(StandardCharsets.UTF_8));
+    ClinicModel model = newModel();
+    List<String> rejected = new ArrayList<>();
+    long lines = new ParallelClinicDataParser(pool, 16).parse(file,
+        new ClinicDataApplier(model, true) {
+          @Override
+          public void reject(long lineNumber, String line, RuntimeException error) {
+            rejected.add(lineNumber + ": " + line);
+          }
+        });
+    assertEquals("Every line should be read", 7, lines);
+    assertEquals("Bad lines should be rejected with their numbers and text",
+        Arrays.asList("3: Room, Bad, Exam, 1, two, 3, 4", "5: SendHome, Jane Doe, Nina Ortiz"),
+        rejected);
+    assertEquals("Lines after the rejected ones should be applied", 1,
+        model.findRoomByName("Waiting Room").getAssignedPatients().size());
+  }
+}
@@ -97,4 +97,22 @@ public class PatientTest {
     //assertFalse("Patient should not be active within the last year", patient.getVisitsLastYear());
   }
   
+  @Test
+  public void testVisitsKeptInTimeOrder() {
+    LocalDateTime now = LocalDateTime.now();
+    VisitRecord recent = new VisitRecord(now.minusDays(10), "Recent Flu", 37.1);
+    VisitRecord old = new VisitRecord(now.minusDays(400), "Old Flu", 36.5);
+    patient.addVisitRecord(recent);
+    patient.addVisitRecord(old);
+    
+    assertEquals("Oldest visit should come first", old, patient.getVisitRecords().get(0));
+    assertEquals("Latest visit should be the most recent one", recent, patient.getLatestVisit());
+    assertEquals("Only one visit should fall in the last year", 
+        1, patient.countVisitsAfter(now.minusDays(365)));
+    assertTrue("Patient should have visited in the last year", 
+        patient.hasVisitSince(now.minusDays(365)));
+    assertFalse("Patient should not have visited in the last week", 
+        patient.hasVisitSince(now.minusDays(7)));
+  }
+  
 }
@@ -0,0 +1,61 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import clinic.PersistentVector;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing the structure sharing vector behind clinic snapshots.
+ */
+public class PersistentVectorTest {
+  private PersistentVector<Integer> vector;
+
+  /**
+   * Creating a vector large enough to need several tree levels.
+   */
+  @Before
+  public void setUp() {
+    vector = PersistentVector.empty();
+    for (int i = 0; i < 2000; i++) {
+      vector = vector.plus(i);
+    }
+  }
+
+  @Test
+  public void testAppend() {
+    assertEquals("All elements should be kept", 2000, vector.size());
+    for (int i = 0; i < vector.size(); i++) {
+      assertEquals("Elements should stay in order", Integer.valueOf(i), vector.get(i));
+    }
+  }
+
+  @Test
+  public void testOldVersionsUnchanged() {
+    PersistentVector<Integer> before = vector;
+    PersistentVector<Integer> after = vector.plus(2000).with(5, -5).with(1999, -1999);
+    assertEquals("Old version should keep its size", 2000, before.size());
+    assertEquals("Old version should keep its elements", Integer.valueOf(5), before.get(5));
+    assertEquals("Old tail should be unchanged", Integer.valueOf(1999), before.get(1999));
+    assertEquals("New version should see the change", Integer.valueOf(-5), after.get(5));
+    assertEquals("New version should see the append", Integer.valueOf(2000), after.get(2000));
+  }
+
+  @Test
+  public void testOfList() {
+    List<String> names = new ArrayList<>(List.of("Exam", "Waiting", "Surgery"));
+    PersistentVector<String> copy = PersistentVector.of(names);
+    names.clear();
+    assertEquals("Vector should equal its source", List.of("Exam", "Waiting", "Surgery"), copy);
+    assertTrue("Empty vector should be empty", PersistentVector.empty().isEmpty());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testMissingElement() {
+    vector.get(2000);
+  }
+}
@@ -0,0 +1,63 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import clinic.RenderScheduler;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing that the render scheduler coalesces bursts of changes.
+ */
+public class RenderSchedulerTest {
+  private AtomicInteger renders;
+  private RenderScheduler scheduler;
+
+  /**
+   * Creating a scheduler that counts how often it renders.
+   */
+  @Before
+  public void setUp() {
+    renders = new AtomicInteger();
+    scheduler = new RenderScheduler(renders::incrementAndGet, 10);
+  }
+
+  @After
+  public void tearDown() {
+    scheduler.shutdown();
+  }
+
+  @Test
+  public void testBurstIsCoalesced() {
+    for (int i = 0; i < 1000; i++) {
+      scheduler.requestRender();
+    }
+    assertTrue("Render should finish", scheduler.awaitIdle(5000));
+    assertTrue("A burst should render at least once", renders.get() >= 1);
+    assertTrue("A burst should not render once per change", renders.get() <= 2);
+    assertFalse("Nothing should be left to render", scheduler.isDirty());
+  }
+
+  @Test
+  public void testShutdownDropsPendingRender() {
+    scheduler.setMaxFrameRate(1);
+    scheduler.requestRender();
+    assertTrue("First render should finish", scheduler.awaitIdle(5000));
+    scheduler.requestRender(); // Held back for a second by the frame rate.
+    scheduler.shutdown();
+    assertFalse("Nothing should be left to render", scheduler.isDirty());
+    assertTrue("A shut down scheduler should be idle", scheduler.awaitIdle(0));
+    scheduler.requestRender();
+    assertTrue("Renders after shutdown should be dropped", scheduler.awaitIdle(0));
+    assertEquals("Only the first render should happen", 1, renders.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidFrameRate() {
+    scheduler.setMaxFrameRate(0);
+  }
+}
@@ -0,0 +1,116 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import clinic.SpatialIndex;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing the spatial index against a scan over every rectangle.
+ */
+public class SpatialIndexTest {
+  private SpatialIndex<Integer> index;
+  private List<int[]> rects;
+
+  /**
+   * Filling an index with random rectangles, a few of them very large.
+   */
+  @Before
+  public void setUp() {
+    index = new SpatialIndex<>(16);
+    rects = new ArrayList<>();
+    Random random = new Random(42);
+    for (int i = 0; i < 500; i++) {
+      int x = random.nextInt(2000) - 1000;
+      int y = random.nextInt(2000) - 1000;
+      int size = i % 100 == 0 ? 3000 : 1 + random.nextInt(60);
+      int[] rect = {x, y, x + size, y + random.nextInt(60)};
+      rects.add(rect);
+      index.add(i, rect[0], rect[1], rect[2], rect[3]);
+    }
+  }
+
+  private Integer scanAt(int x, int y) {
+    for (int i = 0; i < rects.size(); i++) {
+      int[] r = rects.get(i);
+      if (x >= r[0] && x <= r[2] && y >= r[1] && y <= r[3]) {
+        return i;
+      }
+    }
+    return null;
+  }
+
+  private long distance(int i, int x, int y) {
+    int[] r = rects.get(i);
+    long dx = Math.max(0, Math.max((long) r[0] - x, (long) x - r[2]));
+    long dy = Math.max(0, Math.max((long) r[1] - y, (long) y - r[3]));
+    return dx * dx + dy * dy;
+  }
+
+  @Test
+  public void testFindAtMatchesScan() {
+    Random random = new Random(7);
+    for (int i = 0; i < 5000; i++) {
+      int x = random.nextInt(2400) - 1200;
+      int y = random.nextInt(2400) - 1200;
+      assertEquals("Point " + x + "," + y + " should find the first room added", scanAt(x, y),
+          index.findAt(x, y));
+    }
+  }
+
+  @Test
+  public void testFindInMatchesScan() {
+    Random random = new Random(8);
+    for (int i = 0; i < 500; i++) {
+      int x = random.nextInt(2400) - 1200;
+      int y = random.nextInt(2400) - 1200;
+      int w = random.nextInt(i % 50 == 0 ? 3000 : 200);
+      int h = random.nextInt(200);
+      List<Integer> expected = new ArrayList<>();
+      for (int j = 0; j < rects.size(); j++) {
+        int[] r = rects.get(j);
+        if (r[0] <= x + w && r[2] >= x && r[1] <= y + h && r[3] >= y) {
+          expected.add(j);
+        }
+      }
+      assertEquals("Area query should find overlapping rooms in order", expected,
+          index.findIn(x + w, y + h, x, y));
+    }
+  }
+
+  @Test
+  public void testFindNearestMatchesScan() {
+    Random random = new Random(9);
+    for (int i = 0; i < 2000; i++) {
+      int x = random.nextInt(10000) - 5000;
+      int y = random.nextInt(10000) - 5000;
+      int expected = 0;
+      for (int j = 1; j < rects.size(); j++) {
+        if (distance(j, x, y) < distance(expected, x, y)) {
+          expected = j;
+        }
+      }
+      assertEquals("Nearest room to " + x + "," + y + " should match a scan",
+          Integer.valueOf(expected), index.findNearest(x, y));
+    }
+  }
+
+  @Test
+  public void testEmptyAndCleared() {
+    SpatialIndex<String> empty = new SpatialIndex<>();
+    assertNull("Empty index should find nothing at a point", empty.findAt(0, 0));
+    assertNull("Empty index should have no nearest item", empty.findNearest(0, 0));
+    index.clear();
+    assertEquals("Cleared index should be empty", 0, index.size());
+    assertEquals("Cleared index should find nothing in an area", 0,
+        index.findIn(-5000, -5000, 5000, 5000).size());
+    index.add(1, 10, 10, 20, 20);
+    assertEquals("Index should be usable after clearing", Integer.valueOf(1),
+        index.findAt(15, 15));
+  }
+}
@@ -0,0 +1,191 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import clinic.ClinicModel;
+import clinic.ClinicSnapshot;
+import clinic.Patient;
+import clinic.Room;
+import clinic.RoomGraphics;
+import clinic.TileRenderer;
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import javax.imageio.ImageIO;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing that tiles match the floor plan and are only rendered again
+ * when something in them changed.
+ */
+public class TileRendererTest {
+  private ClinicModel model;
+  private TileRenderer renderer;
+  private Patient patient;
+
+  /**
+   * Laying out a 10 by 10 grid of rooms, 100 pixels apart.
+   */
+  @Before
+  public void setUp() {
+    model = new ClinicModel();
+    model.beginBulkLoad();
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        model.addRoom(new Room(i * 100 + 5, j * 100 + 5, i * 100 + 95, j * 100 + 95, "exam",
+            "Room " + i + "-" + j));
+      }
+    }
+    patient = new Patient("Ann", "Blue", "1980-04-04");
+    model.addPatient(patient);
+    model.commitBulkLoad();
+    renderer = new TileRenderer(100, 200);
+    renderer.update(model.getSnapshot());
+  }
+
+  /**
+   * Stopping the render thread.
+   */
+  @After
+  public void tearDown() {
+    model.shutdown();
+  }
+
+  @Test
+  public void testTilesMatchWholePlan() {
+    model.assignPatientToRoom(patient, model.findRoomByName("Room 2-1"));
+    renderer.update(model.getSnapshot());
+    TileRenderer whole = new TileRenderer(1000, 1);
+    whole.update(model.getSnapshot());
+    BufferedImage plan = whole.getTile(0, 0);
+    for (int tx = 0; tx < 10; tx++) {
+      for (int ty = 0; ty < 10; ty++) {
+        BufferedImage tile = renderer.getTile(tx, ty);
+        for (int x = 0; x < 100; x++) {
+          for (int y = 0; y < 100; y++) {
+            assertEquals("Tile " + tx + "," + ty + " pixel " + x + "," + y,
+                plan.getRGB(tx * 100 + x, ty * 100 + y), tile.getRGB(x, y));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testTilesMatchPanelDrawing() {
+    model.assignPatientToRoom(patient, model.findRoomByName("Room 2-1"));
+    ClinicSnapshot snapshot = model.getSnapshot();
+    renderer.update(snapshot);
+    BufferedImage panel = new BufferedImage(1000, 1000, BufferedImage.TYPE_INT_RGB);
+    Graphics g = panel.getGraphics();
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, 1000, 1000);
+    for (ClinicSnapshot.RoomState state : snapshot.getRoomStates()) {
+      RoomGraphics.of(state).draw(g);
+    }
+    g.dispose();
+    for (int tx = 0; tx < 3; tx++) {
+      for (int ty = 0; ty < 3; ty++) {
+        BufferedImage tile = renderer.getTile(tx, ty);
+        for (int x = 0; x < 100; x++) {
+          for (int y = 0; y < 100; y++) {
+            assertEquals("Tile " + tx + "," + ty + " pixel " + x + "," + y,
+                panel.getRGB(tx * 100 + x, ty * 100 + y), tile.getRGB(x, y));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testOnlyChangedTilesAreRendered() {
+    for (int tx = 0; tx < 10; tx++) {
+      for (int ty = 0; ty < 10; ty++) {
+        renderer.getTile(tx, ty);
+      }
+    }
+    assertEquals("Every tile should be rendered once", 100, renderer.getTilesRendered());
+    BufferedImage untouched = renderer.getTile(7, 7);
+    assertEquals("Cached tiles should not be rendered again", 100,
+        renderer.getTilesRendered());
+
+    model.assignPatientToRoom(patient, model.findRoomByName("Room 3-4"));
+    renderer.update(model.getSnapshot());
+    for (int tx = 0; tx < 10; tx++) {
+      for (int ty = 0; ty < 10; ty++) {
+        renderer.getTile(tx, ty);
+      }
+    }
+    long rerendered = renderer.getTilesRendered() - 100;
+    assertTrue("Only tiles the room reaches into should be rendered, not " + rerendered,
+        rerendered >= 1 && rerendered <= 4);
+    assertEquals("The changed room should be shown occupied", Color.RED.getRGB(),
+        renderer.getTile(3, 4).getRGB(50, 80));
+    assertSame("Tiles away from the change should be reused", untouched,
+        renderer.getTile(7, 7));
+  }
+
+  @Test
+  public void testCacheIsBounded() {
+    TileRenderer small = new TileRenderer(100, 4);
+    small.update(model.getSnapshot());
+    for (int tx = 0; tx < 5; tx++) {
+      small.getTile(tx, 0);
+    }
+    small.getTile(4, 0);
+    assertEquals("The newest tiles should stay cached", 5, small.getTilesRendered());
+    small.getTile(0, 0);
+    assertEquals("The least recently used tile should be dropped", 6, small.getTilesRendered());
+  }
+
+  @Test
+  public void testExportStreamsWholePlan() throws IOException {
+    model.assignPatientToRoom(patient, model.findRoomByName("Room 9-9"));
+    Path file = Files.createTempFile("plan", ".png");
+    try {
+      model.exportFloorPlan(file.toString());
+      BufferedImage image = ImageIO.read(file.toFile());
+      assertTrue("The export should reach the last room", image.getWidth() >= 996
+          && image.getHeight() >= 996);
+      assertEquals("Rooms past the on screen frame should be exported", Color.RED.getRGB(),
+          image.getRGB(950, 980));
+      assertEquals("Empty rooms should be exported", Color.GREEN.getRGB(),
+          image.getRGB(50, 80));
+      assertEquals("Gaps between rooms should be white", Color.WHITE.getRGB(),
+          image.getRGB(98, 98));
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void testFailedExportLeavesNoFile() throws IOException {
+    TileRenderer failing = new TileRenderer(100, 200) {
+      @Override
+      public synchronized BufferedImage getTile(int tx, int ty) {
+        if (ty > 2) {
+          throw new IllegalStateException("Out of tiles");
+        }
+        return super.getTile(tx, ty);
+      }
+    };
+    Path file = Files.createTempFile("plan", ".png");
+    try {
+      failing.export(model.getSnapshot(), file);
+      fail("The export should fail");
+    } catch (IllegalStateException e) {
+      assertFalse("The partly written file should be deleted", Files.exists(file));
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import clinic.BinarySnapshot;
+import clinic.ClinicModel;
+import clinic.ClinicalStaff;
+import clinic.Patient;
+import clinic.Room;
+import clinic.WriteAheadLog;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Testing that the write-ahead log rebuilds a model after a restart.
+ */
+public class WriteAheadLogTest {
+  private Path logFile;
+
+  // Models made by a test, their render threads are stopped after it.
+  private final List<ClinicModel> models = new ArrayList<>();
+
+  private ClinicModel newModel() {
+    ClinicModel model = new ClinicModel();
+    models.add(model);
+    return model;
+  }
+
+  /**
+   * Creating a log with a few changes in it.
+   */
+  @Before
+  public void setUp() throws IOException {
+    logFile = Files.createTempFile("clinic", ".wal");
+    Files.delete(logFile);
+    ClinicModel model = newModel();
+    try (WriteAheadLog log = new WriteAheadLog(logFile, 4, 10)) {
+      model.setWriteAheadLog(log);
+      Room waiting = new Room(0, 0, 10, 10, "waiting", "Waiting Room");
+      model.addRoom(waiting);
+      model.addRoom(new Room(11, 11, 21, 21, "exam", "Exam Room 1"));
+      ClinicalStaff doctor = new ClinicalStaff("Alice", "Smith", "MD", "1234567890", "Doctor");
+      model.addStaff(doctor);
+      Patient patient = new Patient("John", "Doe", "1980-01-01");
+      model.addPatient(patient);
+      model.assignPatientToRoom(patient, waiting);
+      model.assignClinicalStaffToPatient(doctor, patient);
+      model.addVisitRecord(patient, LocalDateTime.of(2024, 5, 1, 9, 30), "Flu", 38.2);
+      Patient other = new Patient("Jane", "Doe", "1990-02-02");
+      model.addPatient(other);
+      model.deactivatePatient(other, doctor);
+    }
+  }
+
+  /**
+   * Stopping the models and removing the log file.
+   */
+  @After
+  public void tearDown() throws IOException {
+    for (ClinicModel model : models) {
+      model.shutdown();
+    }
+    Files.deleteIfExists(logFile);
+  }
+
+  private ClinicModel replay() throws IOException {
+    ClinicModel model = newModel();
+    try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+      model.setWriteAheadLog(log);
+      assertEquals("Every change should be replayed", 9, log.replay(model));
+    }
+    return model;
+  }
+
+  @Test
+  public void testReplayRebuildsModel() throws IOException {
+    ClinicModel model = replay();
+
+    assertEquals("Rooms should be restored", 2, model.getAllRooms().size());
+    assertEquals("Staff should be restored", 1, model.getAllStaff().size());
+    assertEquals("Patients should be restored", 2, model.getAllPatients().size());
+    Patient patient = model.findPatientByName("John", "Doe");
+    assertEquals("Staff assignment should be restored", 1,
+        model.getClinicalStaffAssignedToPatient(patient).size());
+    assertEquals("Visit should be restored", "Flu",
+        patient.getLatestVisit().getChiefComplaint());
+    assertTrue("Room assignment should be restored",
+        model.findRoomByName("Waiting Room").isOccupied());
+    Patient other = model.findPatientByName("Jane", "Doe");
+    assertFalse("Deactivation should be restored", other.isActive());
+    assertTrue("Approver should be the replayed staff member",
+        model.getDeactivationApprover(other) == model.getAllStaff().get(0));
+  }
+
+  @Test
+  public void testReplayDoesNotLogAgain() throws IOException {
+    long size = Files.size(logFile);
+    replay();
+    assertEquals("Replaying should not grow the log", size, Files.size(logFile));
+    replay();
+  }
+
+  @Test
+  public void testReplayAfterCheckpoint() throws IOException {
+    Path snapshotFile = Files.createTempFile("clinic", ".snapshot");
+    try {
+      ClinicModel model = newModel();
+      try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+        model.setWriteAheadLog(log);
+        log.replay(model);
+        BinarySnapshot.write(model, snapshotFile, 1);
+        log.checkpoint(model, 1);
+        model.addPatient(new Patient("Sam", "Lee", "2000-03-03"));
+        model.assignClinicalStaffToPatient((ClinicalStaff) model.getAllStaff().get(0),
+            model.findPatientByName("Jane", "Doe"));
+      }
+
+      ClinicModel restored = newModel();
+      assertEquals("Snapshot generation should be read", 1,
+          BinarySnapshot.read(snapshotFile, restored));
+      try (WriteAheadLog log = new WriteAheadLog(logFile)) {
+        assertEquals("Log should continue from the snapshot", 1, log.getGeneration());
+        restored.setWriteAheadLog(log);
+        assertEquals("Only changes since the checkpoint should be replayed", 2,
+            log.replay(restored));
+      }
+      assertEquals("Patients should be restored", 3, restored.getAllPatients().size());
+      assertEquals("Change after the checkpoint should refer to the snapshot's staff", 1,
+          restored.getClinicalStaffAssignedToPatient(
+              restored.findPatientByName("Jane", "Doe")).size());
+    } finally {
+      Files.deleteIfExists(snapshotFile);
+    }
+  }
+
+  @Test
+  public void testTornRecordIsDropped() throws IOException {
+    long size = Files.size(logFile);
+    Files.write(logFile, new byte[] {0, 0, 0, 40, 3, 1}, StandardOpenOption.APPEND);
+
+    replay();
+    assertEquals("Incomplete record should be truncated", size, Files.size(logFile));
+  }
+}